@@ -0,0 +1,42 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+
+/**
+ * Measures {@link Basket#applyDiscount(BigDecimal)} for discounts of different {@link BigDecimal} scales.
+ */
+@State(Scope.Thread)
+public class BasketBenchmark {
+
+    /**
+     * Scale of the basket value and discount, 2 matches the database columns.
+     */
+    @Param({ "0", "2", "8" })
+    public int scale;
+
+    private BigDecimal value;
+
+    private BigDecimal discount;
+
+    @Setup
+    public void setUp() {
+        value = new BigDecimal("123.456789123").setScale(scale, RoundingMode.HALF_UP);
+        discount = new BigDecimal("9.99999999").setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public Basket applyDiscount() {
+        final Basket basket = Basket.builder().value(value).build();
+        basket.applyDiscount(discount);
+        return basket;
+    }
+}
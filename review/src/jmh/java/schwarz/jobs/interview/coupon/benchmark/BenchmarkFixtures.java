@@ -0,0 +1,42 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.time.Clock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCache;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCacheProperties;
+import schwarz.jobs.interview.coupon.core.services.filter.CouponCodeFilterStore;
+import schwarz.jobs.interview.coupon.core.services.journal.ApplicationJournal;
+import schwarz.jobs.interview.coupon.core.services.metrics.CouponMetrics;
+import schwarz.jobs.interview.coupon.core.services.redemption.RedemptionLedger;
+import schwarz.jobs.interview.coupon.core.services.rules.CouponRuleEngine;
+import schwarz.jobs.interview.coupon.core.services.snapshot.CouponSnapshotStore;
+import schwarz.jobs.interview.coupon.core.services.stacking.CouponStackingEngine;
+
+/**
+ * Wires the services under benchmark the same way the application context does, without Spring.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static CouponService couponService(final CouponRepository couponRepository, final CouponCacheProperties cacheProperties) {
+        final CouponRuleEngine couponRuleEngine = new CouponRuleEngine(Clock.systemUTC());
+        return new CouponService(
+            couponRepository,
+            CouponShards.single(),
+            null, // exports are not benchmarked
+            new CouponCache(cacheProperties),
+            new CouponSnapshotStore(Clock.systemUTC()),
+            new CouponCodeFilterStore(),
+            new CouponMetrics(new SimpleMeterRegistry()),
+            ApplicationJournal.disabled(),
+            couponRuleEngine,
+            new RedemptionLedger(),
+            new CouponStackingEngine(couponRuleEngine));
+    }
+}
@@ -0,0 +1,57 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCacheProperties;
+
+/**
+ * Measures {@link CouponService#getCoupon(String)} for growing catalogues, with a cache large enough to
+ * hold the whole catalogue once it is warmed up. Requires a large heap for the 10M catalogue.
+ */
+@State(Scope.Benchmark)
+public class CouponLookupBenchmark {
+
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    public int catalogueSize;
+
+    private CouponService couponService;
+
+    private String[] probes;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        final CouponCacheProperties properties = new CouponCacheProperties();
+        properties.setMaximumSize(catalogueSize);
+        properties.setExpireAfterWrite(Duration.ofDays(1));
+
+        couponService = BenchmarkFixtures.couponService(InMemoryCouponRepository.withCatalogue(catalogueSize), properties);
+
+        for (int i = 0; i < catalogueSize; i++) {
+            couponService.getCoupon(InMemoryCouponRepository.code(i));
+        }
+
+        // random probes defeat the CPU caches the same way real traffic across the catalogue does
+        final SplittableRandom random = new SplittableRandom(42);
+        probes = new String[1 << 16];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = InMemoryCouponRepository.code(random.nextInt(catalogueSize));
+        }
+    }
+
+    @Benchmark
+    public Optional<Coupon> lookup() {
+        return couponService.getCoupon(probes[next++ & (probes.length - 1)]);
+    }
+}
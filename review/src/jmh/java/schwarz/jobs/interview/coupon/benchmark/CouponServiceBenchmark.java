@@ -0,0 +1,60 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCacheProperties;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+
+/**
+ * Measures the full {@link CouponService#apply(Basket, String)} hot path against the in-memory repository.
+ */
+@State(Scope.Benchmark)
+public class CouponServiceBenchmark {
+
+    private static final int CATALOGUE_SIZE = 10_000;
+
+    /**
+     * Number of distinct codes the requests rotate through, larger values put more pressure on the cache.
+     */
+    @Param({ "1", "1000" })
+    public int hotCodes;
+
+    private CouponService couponService;
+
+    private String[] codes;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        couponService = BenchmarkFixtures.couponService(
+            InMemoryCouponRepository.withCatalogue(CATALOGUE_SIZE), new CouponCacheProperties());
+
+        codes = new String[hotCodes];
+        for (int i = 0; i < hotCodes; i++) {
+            codes[i] = InMemoryCouponRepository.code(i);
+        }
+    }
+
+    @Benchmark
+    public Optional<Basket> apply() {
+        final String code = codes[next++ % codes.length];
+        return couponService.apply(Basket.builder().value(BigDecimal.valueOf(12_345, 2)).build(), code);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Optional<Basket> applyContended() {
+        final String code = codes[(int) (Thread.currentThread().threadId() % codes.length)];
+        return couponService.apply(Basket.builder().value(BigDecimal.valueOf(12_345, 2)).build(), code);
+    }
+}
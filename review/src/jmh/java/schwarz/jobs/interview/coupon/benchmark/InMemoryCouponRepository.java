@@ -0,0 +1,73 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+
+/**
+ * HashMap backed stand-in for the {@link CouponRepository}, so benchmarks measure the service and not H2.
+ * Only the methods used by the service are supported, all others throw {@link UnsupportedOperationException}.
+ */
+final class InMemoryCouponRepository {
+
+    private InMemoryCouponRepository() {
+    }
+
+    /**
+     * @param size Number of coupons in the catalogue, their codes are {@link #code(int)} for 0 until size.
+     * @return A repository holding the generated catalogue.
+     */
+    static CouponRepository withCatalogue(final int size) {
+        final Map<String, Coupon> coupons = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            coupons.put(code(i), Coupon.builder()
+                .id((long) i)
+                .code(code(i))
+                .discount(BigDecimal.valueOf(10 + i % 40, 0).setScale(2))
+                .minBasketValue(BigDecimal.valueOf(50).setScale(2))
+                .build());
+        }
+        return of(coupons);
+    }
+
+    static String code(final int index) {
+        return "code" + index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CouponRepository of(final Map<String, Coupon> coupons) {
+        return (CouponRepository) Proxy.newProxyInstance(
+            CouponRepository.class.getClassLoader(),
+            new Class<?>[] { CouponRepository.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "findByCode":
+                        return Optional.ofNullable(coupons.get((String) args[0]));
+                    case "findByCodeIn":
+                        return ((Collection<String>) args[0]).stream()
+                            .map(coupons::get)
+                            .filter(coupon -> coupon != null)
+                            .collect(Collectors.toList());
+                    case "save":
+                        final Coupon coupon = (Coupon) args[0];
+                        coupons.put(coupon.getCode(), coupon);
+                        return coupon;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "InMemoryCouponRepository";
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
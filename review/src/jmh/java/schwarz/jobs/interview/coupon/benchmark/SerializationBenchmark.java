@@ -0,0 +1,68 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+
+/**
+ * Compares the cost of reading an apply request and writing its response as JSON and as CBOR,
+ * with mappers configured like the application's codecs.
+ */
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    @Param({ "json", "cbor" })
+    public String format;
+
+    private ObjectReader requestReader;
+
+    private ObjectWriter responseWriter;
+
+    private byte[] request;
+
+    private Basket response;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if ("cbor".equals(format)) {
+            builder.factory(new CBORFactory());
+        }
+        final ObjectMapper mapper = builder.build();
+
+        requestReader = mapper.readerFor(ApplicationRequestDTO.class);
+        responseWriter = mapper.writerFor(Basket.class);
+
+        request = mapper.writeValueAsBytes(ApplicationRequestDTO.builder()
+            .code("summer-sale-2024")
+            .basket(Basket.builder().value(new BigDecimal("123.45")).build())
+            .build());
+
+        response = Basket.builder().value(new BigDecimal("123.45")).build();
+        response.applyDiscount(new BigDecimal("10.00"));
+    }
+
+    @Benchmark
+    public ApplicationRequestDTO readRequest() throws IOException {
+        return requestReader.readValue(request);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,63 @@
+package schwarz.jobs.interview.coupon.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.rules.CouponRuleEngine;
+import schwarz.jobs.interview.coupon.core.services.stacking.CouponStackingEngine;
+import schwarz.jobs.interview.coupon.core.services.stacking.StackingSelection;
+
+/**
+ * Measures {@link CouponStackingEngine#select(List, long)} up to the maximum number of coupons per basket,
+ * with random discounts, minimums and stacking groups. The budget is a few milliseconds at 20 coupons.
+ */
+@State(Scope.Thread)
+public class StackingBenchmark {
+
+    private static final long BASKET_VALUE = 250_00;
+
+    @Param({ "5", "10", "20" })
+    public int coupons;
+
+    /**
+     * Number of distinct stacking groups, 0 for ungrouped coupons only.
+     */
+    @Param({ "0", "4" })
+    public int groups;
+
+    private CouponStackingEngine couponStackingEngine;
+
+    private List<Coupon> candidates;
+
+    @Setup
+    public void setUp() {
+        couponStackingEngine = new CouponStackingEngine(new CouponRuleEngine(Clock.systemUTC()));
+
+        final SplittableRandom random = new SplittableRandom(42);
+        candidates = new ArrayList<>(coupons);
+        for (int i = 0; i < coupons; i++) {
+            candidates.add(Coupon.builder()
+                .id((long) i)
+                .code("stack" + i)
+                .discount(BigDecimal.valueOf(random.nextInt(500, 5_000), 2))
+                .minBasketValue(BigDecimal.valueOf(random.nextInt(0, 25_000), 2))
+                .stackingGroup(groups == 0 ? null : "group" + random.nextInt(groups))
+                .build());
+        }
+    }
+
+    @Benchmark
+    public StackingSelection select() {
+        return couponStackingEngine.select(candidates, BASKET_VALUE);
+    }
+}
@@ -0,0 +1,220 @@
+package schwarz.jobs.interview.coupon.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import schwarz.jobs.interview.coupon.CouponApplication;
+import schwarz.jobs.interview.coupon.core.services.importer.CouponImportService;
+import schwarz.jobs.interview.coupon.core.services.importer.ImportFormat;
+import schwarz.jobs.interview.coupon.core.services.importer.ImportReport;
+
+/**
+ * Drives the real HTTP, service, JPA and H2 stack with open-model load and fails if a latency or error
+ * objective is missed. Run with {@code ./gradlew loadTest}, settings are described in {@link LoadTestSettings}.
+ * <p>
+ * The scenarios run at the same time, as they would in production: apply requests for random codes of a
+ * seeded catalogue, creates of new coupons and bulk lookups of three codes. A warm-up phase with the same
+ * load runs first and is not measured. The report is printed and written to {@code build/reports/load-test.txt}.
+ * <p>
+ * The application is started like the packaged jar, so {@code application.yml} and the active profiles choose the
+ * web stack. {@code @SpringBootTest} deduces the web application type from the class path and its own
+ * properties only, so with both web starters present it would always measure the servlet stack.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CouponLoadTest {
+
+    private static final String APPLY_BODY = "{\"code\":\"%s\",\"basket\":{\"value\":100.00}}";
+
+    private static final String CREATE_BODY = "{\"code\":\"%s\",\"discount\":5.00,\"minBasketValue\":10.00}";
+
+    private final LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+
+    private final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private ConfigurableApplicationContext application;
+
+    private int port;
+
+    // seeded as NDJSON through the importer, so shard routing and the code filter see the catalogue like real coupons
+    @BeforeAll
+    public void startApplicationAndSeedCatalogue() throws Exception {
+        application = new SpringApplicationBuilder(CouponApplication.class).run("--server.port=0");
+        port = application.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+        final StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < settings.catalogueSize; i++) {
+            ndjson.append("{\"code\":\"").append(catalogueCode(i)).append("\",\"discount\":5.00,\"minBasketValue\":10.00}\n");
+        }
+        final ImportReport report = application.getBean(CouponImportService.class).importCoupons(
+            new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)), ImportFormat.NDJSON);
+
+        assertThat(report.getImported()).isEqualTo(settings.catalogueSize);
+    }
+
+    @AfterAll
+    public void stopApplication() {
+        client.close();
+        if (application != null) {
+            application.close();
+        }
+    }
+
+    @Test
+    public void should_meet_latency_and_error_objectives_under_load() throws Exception {
+        // warm-up: JIT, connection pools and caches, measured the same way but discarded
+        runScenarios("warm-up", settings.warmUp);
+
+        final List<String> report = new ArrayList<>();
+        final List<String> violations = new ArrayList<>();
+        final List<ScenarioRun> runs = runScenarios("measured", settings.duration);
+
+        report.add(String.format(Locale.ROOT, "%-8s %9s %10s %9s %9s %9s %9s %8s",
+            "scenario", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors"));
+        for (ScenarioRun run : runs) {
+            final LatencyRecorder.Summary summary = run.summary;
+            report.add(String.format(Locale.ROOT, "%-8s %9d %10.1f %9.2f %9.2f %9.2f %9.2f %7.3f%%",
+                run.scenario.name, summary.requests, summary.throughput, millis(summary.p50), millis(summary.p99),
+                millis(summary.p999), millis(summary.max), summary.errorRate * 100));
+
+            if (summary.p99.compareTo(run.scenario.p99) > 0) {
+                violations.add(run.scenario.name + " p99 " + millis(summary.p99) + " ms exceeds " + run.scenario.p99.toMillis() + " ms");
+            }
+            if (summary.p999.compareTo(run.scenario.p999) > 0) {
+                violations.add(run.scenario.name + " p999 " + millis(summary.p999) + " ms exceeds " + run.scenario.p999.toMillis() + " ms");
+            }
+            if (summary.errorRate > settings.maxErrorRate) {
+                violations.add(run.scenario.name + " error rate " + summary.errorRate + " exceeds " + settings.maxErrorRate);
+            }
+        }
+
+        final Path reportFile = Path.of("build", "reports", "load-test.txt");
+        Files.createDirectories(reportFile.getParent());
+        Files.write(reportFile, report);
+        report.forEach(System.out::println);
+
+        assertThat(violations).as("Load test objectives").isEmpty();
+    }
+
+    private List<ScenarioRun> runScenarios(final String phase, final Duration duration) throws Exception {
+        // every generator thread draws from its own random, the same seeds give the same codes in every run
+        final SplittableRandom applyCodes = new SplittableRandom(1);
+        final SplittableRandom lookupCodes = new SplittableRandom(2);
+        final List<ScenarioRun> runs = List.of(
+            new ScenarioRun(settings.apply, duration, n -> apply(catalogueCode(applyCodes.nextInt(settings.catalogueSize)))),
+            new ScenarioRun(settings.create, duration, n -> create("load-new-" + phase + "-" + n)),
+            new ScenarioRun(settings.lookup, duration, n -> lookup(
+                catalogueCode(lookupCodes.nextInt(settings.catalogueSize)),
+                catalogueCode(lookupCodes.nextInt(settings.catalogueSize)),
+                catalogueCode(lookupCodes.nextInt(settings.catalogueSize)))));
+
+        final long start = System.nanoTime();
+        final List<CompletableFuture<Void>> done = runs.stream()
+            .map(ScenarioRun::start)
+            .collect(Collectors.toList());
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new))
+            .get(duration.toSeconds() + 60, TimeUnit.SECONDS);
+        final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        runs.forEach(run -> run.summary = run.recorder.summarize(elapsed));
+        return runs;
+    }
+
+    // 200 applied, 409 not applied are both correct answers, anything else, including a shed 503, is an error
+    private CompletableFuture<Boolean> apply(final String code) {
+        return send(post("/api/v1/apply", String.format(APPLY_BODY, code)))
+            .thenApply(status -> status == 200 || status == 409);
+    }
+
+    private CompletableFuture<Boolean> create(final String code) {
+        return send(post("/api/v1/create", String.format(CREATE_BODY, code)))
+            .thenApply(status -> status == 201);
+    }
+
+    private CompletableFuture<Boolean> lookup(final String... codes) {
+        final StringBuilder query = new StringBuilder();
+        for (String code : codes) {
+            query.append(query.length() == 0 ? "?" : "&").append("code=").append(code);
+        }
+        return send(HttpRequest.newBuilder(uri("/api/v1/coupons" + query)).GET())
+            .thenApply(status -> status == 200);
+    }
+
+    private HttpRequest.Builder post(final String path, final String body) {
+        return HttpRequest.newBuilder(uri(path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private CompletableFuture<Integer> send(final HttpRequest.Builder request) {
+        return client.sendAsync(request.timeout(Duration.ofSeconds(10)).build(), HttpResponse.BodyHandlers.discarding())
+            .thenApply(HttpResponse::statusCode);
+    }
+
+    private URI uri(final String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static String catalogueCode(final int index) {
+        return String.format("load-%07d", index);
+    }
+
+    private static double millis(final Duration duration) {
+        return duration.toNanos() / 1e6;
+    }
+
+    private static final class ScenarioRun {
+
+        final LoadTestSettings.Scenario scenario;
+
+        final Duration duration;
+
+        final LongFunction<CompletableFuture<Boolean>> request;
+
+        final LatencyRecorder recorder;
+
+        LatencyRecorder.Summary summary;
+
+        ScenarioRun(final LoadTestSettings.Scenario scenario, final Duration duration,
+                    final LongFunction<CompletableFuture<Boolean>> request) {
+            this.scenario = scenario;
+            this.duration = duration;
+            this.request = request;
+            // twice the expected requests, in case the arrival rate is not an exact divisor of the duration
+            this.recorder = new LatencyRecorder((int) Math.min(Integer.MAX_VALUE - 8,
+                2 * scenario.ratePerSecond * duration.toSeconds() + 1_000));
+        }
+
+        CompletableFuture<Void> start() {
+            return OpenLoadGenerator.start(scenario.name, scenario.ratePerSecond, duration, request, recorder);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package schwarz.jobs.interview.coupon.load;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latency of every request of one scenario, the percentiles are exact and not bucketed.
+ * Sized up front for the expected number of requests, later requests are still counted but not timed.
+ */
+final class LatencyRecorder {
+
+    private final long[] latencies;
+
+    private final AtomicInteger recorded = new AtomicInteger();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    LatencyRecorder(final int capacity) {
+        this.latencies = new long[capacity];
+    }
+
+    /**
+     * @param latencyNanos Time from when the request should have been sent until its response arrived.
+     * @param successful Whether the response was one the scenario expects.
+     */
+    void record(final long latencyNanos, final boolean successful) {
+        requests.increment();
+        if (!successful) {
+            errors.increment();
+        }
+        final int index = recorded.getAndIncrement();
+        if (index < latencies.length) {
+            latencies[index] = latencyNanos;
+        }
+    }
+
+    /**
+     * Only called after all requests have completed.
+     *
+     * @param elapsed Time from the first intended send to the last response.
+     */
+    Summary summarize(final Duration elapsed) {
+        final long[] sorted = Arrays.copyOf(latencies, Math.min(recorded.get(), latencies.length));
+        Arrays.sort(sorted);
+        final long total = requests.sum();
+        return new Summary(
+            total,
+            total / Math.max(1e-9, elapsed.toNanos() / 1e9),
+            total == 0 ? 0 : (double) errors.sum() / total,
+            percentile(sorted, 0.50),
+            percentile(sorted, 0.99),
+            percentile(sorted, 0.999),
+            sorted.length == 0 ? Duration.ZERO : Duration.ofNanos(sorted[sorted.length - 1]));
+    }
+
+    private static Duration percentile(final long[] sorted, final double quantile) {
+        if (sorted.length == 0) {
+            return Duration.ZERO;
+        }
+        final int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+        return Duration.ofNanos(sorted[Math.max(0, rank)]);
+    }
+
+    static final class Summary {
+
+        final long requests;
+
+        final double throughput;
+
+        final double errorRate;
+
+        final Duration p50;
+
+        final Duration p99;
+
+        final Duration p999;
+
+        final Duration max;
+
+        Summary(final long requests, final double throughput, final double errorRate,
+                final Duration p50, final Duration p99, final Duration p999, final Duration max) {
+            this.requests = requests;
+            this.throughput = throughput;
+            this.errorRate = errorRate;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package schwarz.jobs.interview.coupon.load;
+
+import java.time.Duration;
+
+/**
+ * Parameters of a load test run, read from {@code loadtest.*} system properties so a run can be tuned
+ * without code changes, e.g. {@code ./gradlew loadTest -Ploadtest.apply.rate=2000 -Ploadtest.duration-seconds=60}.
+ */
+final class LoadTestSettings {
+
+    final int catalogueSize;
+
+    final Duration warmUp;
+
+    final Duration duration;
+
+    /**
+     * Largest acceptable share of failed requests of any scenario, 0.001 is 0.1%.
+     */
+    final double maxErrorRate;
+
+    final Scenario apply;
+
+    final Scenario create;
+
+    final Scenario lookup;
+
+    private LoadTestSettings() {
+        this.catalogueSize = intProperty("catalogue-size", 10_000);
+        this.warmUp = Duration.ofSeconds(intProperty("warm-up-seconds", 5));
+        this.duration = Duration.ofSeconds(intProperty("duration-seconds", 20));
+        this.maxErrorRate = doubleProperty("max-error-rate", 0.001);
+        this.apply = new Scenario("apply", 400, 50, 250);
+        this.create = new Scenario("create", 20, 250, 1000);
+        this.lookup = new Scenario("lookup", 100, 100, 500);
+    }
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings();
+    }
+
+    /**
+     * Arrival rate and latency objectives of one scenario, {@code loadtest.<name>.rate},
+     * {@code loadtest.<name>.p99-ms} and {@code loadtest.<name>.p999-ms}.
+     */
+    static final class Scenario {
+
+        final String name;
+
+        final double ratePerSecond;
+
+        final Duration p99;
+
+        final Duration p999;
+
+        Scenario(final String name, final double defaultRate, final long defaultP99Millis, final long defaultP999Millis) {
+            this.name = name;
+            this.ratePerSecond = doubleProperty(name + ".rate", defaultRate);
+            this.p99 = Duration.ofMillis(intProperty(name + ".p99-ms", (int) defaultP99Millis));
+            this.p999 = Duration.ofMillis(intProperty(name + ".p999-ms", (int) defaultP999Millis));
+        }
+    }
+
+    private static int intProperty(final String name, final int defaultValue) {
+        return Integer.parseInt(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+
+    private static double doubleProperty(final String name, final double defaultValue) {
+        return Double.parseDouble(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+}
@@ -0,0 +1,71 @@
+package schwarz.jobs.interview.coupon.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * Sends requests at a fixed arrival rate, independent of how fast responses come back, the way real
+ * clients arrive at a service.
+ * <p>
+ * A closed loop of virtual users waits for each response before sending the next request, so a slow
+ * server lowers the load it receives and hides its own latency. Here every request has an intended send
+ * time on a fixed schedule, and its latency is measured from that time. A request sent late because the
+ * generator fell behind still counts its full delay.
+ */
+final class OpenLoadGenerator {
+
+    private OpenLoadGenerator() {
+    }
+
+    /**
+     * Starts sending on a new thread and returns right away.
+     *
+     * @param ratePerSecond Requests sent per second.
+     * @param duration How long requests are sent.
+     * @param request Sends request number {@code n} and completes with whether the response was a success.
+     * @param recorder Receives the latency of every request.
+     * @return Completes once the last response arrived.
+     */
+    static CompletableFuture<Void> start(final String name, final double ratePerSecond, final Duration duration,
+                                         final LongFunction<CompletableFuture<Boolean>> request,
+                                         final LatencyRecorder recorder) {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        if (ratePerSecond <= 0) {
+            done.complete(null);
+            return done;
+        }
+        final long intervalNanos = (long) (1e9 / ratePerSecond);
+        final long count = duration.toNanos() / intervalNanos;
+
+        Thread.ofPlatform().name("load-" + name).daemon().start(() -> {
+            final List<CompletableFuture<?>> responses = new ArrayList<>((int) Math.min(count, Integer.MAX_VALUE));
+            final long start = System.nanoTime();
+            for (long n = 0; n < count; n++) {
+                final long intended = start + n * intervalNanos;
+                final long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                responses.add(send(request, n)
+                    .handle((successful, error) -> {
+                        recorder.record(System.nanoTime() - intended, error == null && successful);
+                        return null;
+                    }));
+            }
+            CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).whenComplete((ignored, error) -> done.complete(null));
+        });
+        return done;
+    }
+
+    private static CompletableFuture<Boolean> send(final LongFunction<CompletableFuture<Boolean>> request, final long n) {
+        try {
+            return request.apply(n);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
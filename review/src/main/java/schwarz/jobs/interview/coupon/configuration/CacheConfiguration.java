@@ -0,0 +1,13 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCacheProperties;
+import schwarz.jobs.interview.coupon.core.services.filter.CouponCodeFilterProperties;
+import schwarz.jobs.interview.coupon.core.services.idempotency.IdempotencyProperties;
+
+@Configuration
+@EnableConfigurationProperties({ CouponCacheProperties.class, IdempotencyProperties.class, CouponCodeFilterProperties.class })
+public class CacheConfiguration {
+}
@@ -0,0 +1,86 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.util.Map;
+
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Adds CBOR ({@code application/cbor}) as an opt-in wire format next to JSON. Clients choose it with the
+ * {@code Content-Type} and {@code Accept} headers, JSON stays the default.
+ * <p>
+ * CBOR is binary: numbers and {@link java.math.BigDecimal}s are written as tagged binary values instead of
+ * decimal text and field names are length-prefixed, so encoding and decoding skip most of the character
+ * scanning and number formatting of JSON. The messages are the same DTOs as for JSON, so both formats share
+ * one schema. The mapper is derived from the application's Jackson settings.
+ * <p>
+ * Streaming responses ({@code Flux}) can't be encoded as CBOR, endpoints offering CBOR return a {@code Mono}.
+ * <p>
+ * Only WebFlux needs the codecs registered. Spring MVC, used by the {@code virtual-threads} profile, already adds
+ * its CBOR converter whenever jackson-dataformat-cbor is on the classpath.
+ */
+@Configuration
+public class CborConfiguration {
+
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    static class ReactiveCborConfiguration implements WebFluxConfigurer {
+
+        private final ObjectMapper jsonMapper;
+
+        private final ObjectMapper cborMapper;
+
+        ReactiveCborConfiguration(final ObjectMapper jsonMapper, final Jackson2ObjectMapperBuilder builder) {
+            this.jsonMapper = jsonMapper;
+            this.cborMapper = builder.factory(new CBORFactory()).build();
+        }
+
+        @Override
+        public void configureHttpMessageCodecs(final ServerCodecConfigurer configurer) {
+            // custom codecs come before the JSON codec, without explicit MIME types they would claim JSON as well
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+            // and a client accepting anything gets the first custom writer, so JSON is registered ahead of CBOR
+            configurer.customCodecs().register(new Jackson2JsonEncoder(jsonMapper));
+            configurer.customCodecs().register(new SingleValueCborEncoder(cborMapper));
+        }
+    }
+
+    /**
+     * Spring's CBOR encoder only encodes single values and throws on {@link #encode}, which the HTTP message
+     * writer calls for every body. Single-value bodies are passed on to {@link #encodeValue} here.
+     */
+    static final class SingleValueCborEncoder extends Jackson2CborEncoder {
+
+        SingleValueCborEncoder(final ObjectMapper cborMapper) {
+            super(cborMapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(final Publisher<?> inputStream, final DataBufferFactory bufferFactory,
+                                       final ResolvableType elementType, final MimeType mimeType,
+                                       final Map<String, Object> hints) {
+            if (inputStream instanceof Mono<?> mono) {
+                return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+            }
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.time.Clock;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ClockConfiguration {
+
+    // time dependent logic gets the clock injected, so tests can pin it
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+}
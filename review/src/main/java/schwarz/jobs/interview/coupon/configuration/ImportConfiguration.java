@@ -0,0 +1,11 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import schwarz.jobs.interview.coupon.core.services.importer.CouponImportProperties;
+
+@Configuration
+@EnableConfigurationProperties(CouponImportProperties.class)
+public class ImportConfiguration {
+}
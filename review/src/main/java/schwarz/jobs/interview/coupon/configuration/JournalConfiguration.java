@@ -0,0 +1,11 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import schwarz.jobs.interview.coupon.core.services.journal.JournalProperties;
+
+@Configuration
+@EnableConfigurationProperties(JournalProperties.class)
+public class JournalConfiguration {
+}
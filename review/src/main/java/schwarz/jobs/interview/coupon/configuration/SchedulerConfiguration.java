@@ -0,0 +1,50 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class SchedulerConfiguration {
+
+    /**
+     * Scheduler the blocking JPA calls are isolated on, so they never run on an event-loop thread.
+     * It is sized like the connection pool, more threads would only wait for a connection.
+     */
+    @Bean(name = "jdbcScheduler", destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Scheduler platformJdbcScheduler(
+        @Value("${spring.datasource.hikari.maximum-pool-size:10}") final int poolSize,
+        @Value("${coupon.jdbc.queue-size:10000}") final int queueSize) {
+
+        return Schedulers.newBoundedElastic(poolSize, queueSize, "coupon-jdbc");
+    }
+
+    /**
+     * Same bounds as the platform scheduler, but every repository call runs on its own virtual thread
+     * (enabled with {@code spring.threads.virtual.enabled}, see the {@code virtual-threads} profile).
+     */
+    @Bean(name = "jdbcScheduler", destroyMethod = "dispose")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Scheduler virtualJdbcScheduler(
+        @Value("${spring.datasource.hikari.maximum-pool-size:10}") final int poolSize,
+        @Value("${coupon.jdbc.queue-size:10000}") final int queueSize) {
+
+        // idle virtual threads are cheap, 60 seconds is the ttl the other overloads use as well
+        return Schedulers.newBoundedElastic(poolSize, queueSize, Thread.ofVirtual().name("coupon-jdbc-", 0).factory(), 60);
+    }
+
+    /**
+     * Scheduler the baskets of large batches are evaluated on. The work is CPU-bound and never blocks, so it
+     * gets one thread per CPU of its own instead of the common fork-join pool or the jdbc scheduler.
+     */
+    @Bean(name = "batchScheduler", destroyMethod = "dispose")
+    public Scheduler batchScheduler() {
+        return Schedulers.newParallel("coupon-batch", Schedulers.DEFAULT_POOL_SIZE);
+    }
+}
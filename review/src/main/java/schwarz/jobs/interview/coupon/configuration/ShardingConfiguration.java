@@ -0,0 +1,76 @@
+package schwarz.jobs.interview.coupon.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import lombok.extern.slf4j.Slf4j;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+import schwarz.jobs.interview.coupon.core.repository.sharding.ShardRoutingDataSource;
+import schwarz.jobs.interview.coupon.core.repository.sharding.ShardingProperties;
+import schwarz.jobs.interview.coupon.core.repository.sharding.V7_1__Prepare_coupon_shard;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfiguration {
+
+    /**
+     * Routing over the configured shards, or a single shard when sharding is disabled.
+     */
+    @Bean
+    public CouponShards couponShards(final ShardingProperties properties) {
+        return properties.isEnabled() ? CouponShards.of(properties.getShards().size()) : CouponShards.single();
+    }
+
+    /**
+     * Replaces the {@code spring.datasource} with one pool per shard behind a routing datasource, see the
+     * {@code sharded} profile. Every shard is migrated before JPA starts, Spring's own Flyway run must be
+     * disabled, it would only see shard 0.
+     */
+    @Configuration
+    @Slf4j
+    @ConditionalOnProperty(name = "coupon.sharding.enabled", havingValue = "true")
+    static class ShardedDataSourceConfiguration {
+
+        private static final String MIGRATIONS = "classpath:db/migration";
+
+        @Bean
+        @Primary
+        public DataSource dataSource(final ShardingProperties properties) {
+            final int count = properties.getShards().size();
+            final List<HikariDataSource> shards = new ArrayList<>(count);
+            for (int shard = 0; shard < count; shard++) {
+                final ShardingProperties.Shard settings = properties.getShards().get(shard);
+                final HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(settings.getUrl())
+                    .username(settings.getUsername())
+                    .password(settings.getPassword())
+                    .build();
+                dataSource.setPoolName("coupon-shard-" + shard);
+                dataSource.setMaximumPoolSize(settings.getMaximumPoolSize());
+                shards.add(dataSource);
+
+                Flyway.configure()
+                    .dataSource(dataSource)
+                    .locations(MIGRATIONS)
+                    .javaMigrations(new V7_1__Prepare_coupon_shard(shard, count))
+                    .load()
+                    .migrate();
+                log.info("Migrated coupon shard {} of {}", shard, count);
+            }
+            return new ShardRoutingDataSource(shards);
+        }
+    }
+}
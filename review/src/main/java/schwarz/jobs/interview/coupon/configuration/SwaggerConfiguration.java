@@ -1,39 +1,38 @@
 package schwarz.jobs.interview.coupon.configuration;
 
 
+import org.springdoc.core.models.GroupedOpenApi;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
-import springfox.documentation.builders.PathSelectors;
-import springfox.documentation.builders.RequestHandlerSelectors;
-import springfox.documentation.spi.DocumentationType;
-import springfox.documentation.spring.web.plugins.Docket;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.info.Contact;
+import io.swagger.v3.oas.models.info.Info;
+import io.swagger.v3.oas.models.info.License;
 
 @Configuration
-@Profile("dev") // if we have diferent environments (e.g. development, production, stagging, we can 
+@Profile("dev") // if we have diferent environments (e.g. development, production, stagging, we can
 				// enable or disable the documentation depending on the profile
 public class SwaggerConfiguration {
 
     @Bean
-    public Docket api() {
-        return new Docket(DocumentationType.SWAGGER_2)
-            .select()
-            .apis(RequestHandlerSelectors.basePackage("schwarz.jobs.interview"))
-            .paths(PathSelectors.any())
-            .build()
-            .apiInformation();
+    public GroupedOpenApi api() {
+        return GroupedOpenApi.builder()
+            .group("coupon")
+            .packagesToScan("schwarz.jobs.interview")
+            .pathsToMatch("/**")
+            .build();
     }
-    
+
     // If we want to costumize our API documentation's metadata
-    private ApiInfo apiInformation() {
-    	return new ApiInfoBuilder()
+    @Bean
+    public OpenAPI apiInformation() {
+    	return new OpenAPI().info(new Info()
             .title("Company API")
             .description("API documentation")
             .version("1.0.0")
-            .contact(new Contact("Company Support", "urlCompany", "urlSuport"))
-            .license("Company License")
-            .licenseUrl("urlCompany/license")
-            .build();
+            .contact(new Contact().name("Company Support").url("urlCompany").email("urlSuport"))
+            .license(new License().name("Company License").url("urlCompany/license")));
     }
 }
-
@@ -1,10 +1,21 @@
 package schwarz.jobs.interview.coupon.core.domain;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
+import java.time.Instant;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.Id;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,13 +27,16 @@ import lombok.NoArgsConstructor;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "coupon") // it's optionally, but it's a good practice to specify it 
+@Table(name = "coupon", // it's optionally, but it's a good practice to specify it 
+       indexes = @Index(name = "ux_coupon_code", columnList = "code", unique = true))
 public class Coupon implements Serializable { // implement Seriazable class is a good practice for entities,
 											  // especially when you need to pass them between different 
 											  // layers of your application .
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // if we want an auto-increment id
+    // a pooled sequence instead of IDENTITY, so Hibernate can batch inserts without a round trip per id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coupon_seq")
+    @SequenceGenerator(name = "coupon_seq", sequenceName = "coupon_seq", allocationSize = 50)
     @Column(name = "id", updatable = false, nullable = false) // to specify column attributes, 
     												    // such as name or if is a nullable field
     												  // (optional, because a primary key it can't be null)
@@ -30,15 +44,52 @@ public class Coupon implements Serializable { // implement Seriazable class is a
 
     @NotNull 				  // in CouponRespository we have a method called findByCode, so this is to 
     @Size(max = 250)  // prevent invalid data from being stored in the database
-    @Column(name = "code")
+    @Column(name = "code", length = 250, nullable = false, unique = true)
     private String code;
 
     @NotNull
     @Column(name = "discount", precision = 10, scale = 2)
     private BigDecimal discount;
 
-    @Column(name = "minBasketValue", precision = 10, scale = 2)
+    @Column(name = "min_basket_value", precision = 10, scale = 2)
     private BigDecimal minBasketValue;
+
+    @Column(name = "valid_from")
+    private Instant validFrom;
+
+    @Column(name = "valid_until")
+    private Instant validUntil;
+
+    // how often the coupon may be redeemed in total, unlimited when empty
+    @Column(name = "max_redemptions")
+    private Long maxRedemptions;
+
+    // non-stackable coupons are only ever applied on their own
+    @Builder.Default
+    @Column(name = "stackable", nullable = false)
+    private boolean stackable = true;
+
+    // at most one coupon of the same group is applied to a basket, ungrouped when empty
+    @Size(max = 50)
+    @Column(name = "stacking_group", length = 50)
+    private String stackingGroup;
+
+    // maintained by the RedemptionFlusher with relative updates, never written through the entity
+    @Builder.Default
+    @Column(name = "redemption_count", nullable = false, insertable = false, updatable = false)
+    private long redemptionCount = 0;
+
+    // set on every write through the entity, lets the discount snapshot load only changed coupons
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void beforeWrite() {
+        // codes are unique case-insensitively, so they are always stored in their normalized form
+        this.code = CouponCodes.normalize(code);
+        this.updatedAt = Instant.now();
+    }
     
     // Overriding equals() and hashCode() ensures correct comparisons for JPA entities
     // It's a good practice to override equals() and hashCode() to ensure proper comparison and handling of entity instances 
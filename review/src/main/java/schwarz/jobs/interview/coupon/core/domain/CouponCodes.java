@@ -0,0 +1,26 @@
+package schwarz.jobs.interview.coupon.core.domain;
+
+import java.util.Locale;
+
+/**
+ * Helpers for handling coupon codes consistently across the application.
+ */
+public final class CouponCodes {
+
+    private CouponCodes() {
+    }
+
+    /**
+     * Normalizes a coupon code, so the same code always maps to the same key
+     * regardless of surrounding whitespace or letter case.
+     *
+     * @param code The raw coupon code.
+     * @return The normalized code, or null if the given code is null.
+     */
+    public static String normalize(final String code) {
+        if (code == null) {
+            return null;
+        }
+        return code.trim().toLowerCase(Locale.ROOT);
+    }
+}
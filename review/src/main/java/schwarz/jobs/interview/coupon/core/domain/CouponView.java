@@ -0,0 +1,61 @@
+package schwarz.jobs.interview.coupon.core.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Read-only projection of a coupon for listings and exports. Unlike {@link Coupon} it is never managed
+ * by a persistence context, so listing many coupons doesn't grow the session.
+ * <p>
+ * The constructor is used by JPQL constructor expressions, the parameter order must match the queries.
+ */
+@Value
+@Builder
+@AllArgsConstructor
+public class CouponView {
+
+    Long id;
+
+    String code;
+
+    BigDecimal discount;
+
+    BigDecimal minBasketValue;
+
+    Instant validFrom;
+
+    Instant validUntil;
+
+    Long maxRedemptions;
+
+    long redemptionCount;
+
+    boolean stackable;
+
+    String stackingGroup;
+
+    Instant updatedAt;
+
+    /**
+     * @return A detached coupon with the values of this view, for read-only use.
+     */
+    public Coupon toCoupon() {
+        return Coupon.builder()
+            .id(id)
+            .code(code)
+            .discount(discount)
+            .minBasketValue(minBasketValue)
+            .validFrom(validFrom)
+            .validUntil(validUntil)
+            .maxRedemptions(maxRedemptions)
+            .redemptionCount(redemptionCount)
+            .stackable(stackable)
+            .stackingGroup(stackingGroup)
+            .updatedAt(updatedAt)
+            .build();
+    }
+}
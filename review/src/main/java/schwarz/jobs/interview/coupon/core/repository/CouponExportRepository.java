@@ -0,0 +1,119 @@
+package schwarz.jobs.interview.coupon.core.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+
+/**
+ * Streams the whole coupon table with plain JDBC, bypassing the persistence context.
+ * <p>
+ * Rows are fetched from the driver in chunks of {@code coupon.export.fetch-size} and mapped one at a time,
+ * so an export of millions of coupons only ever holds one chunk in memory. With sharding the shards are
+ * read one after the other, each stream holds one connection per shard until it is closed.
+ */
+@Repository
+public class CouponExportRepository {
+
+    private static final String COLUMNS = "id, code, discount, min_basket_value, valid_from, valid_until, "
+        + "max_redemptions, redemption_count, stackable, stacking_group, updated_at";
+
+    private static final String SELECT_ALL = "select " + COLUMNS + " from coupon order by id";
+
+    private static final String SELECT_CODES = "select code from coupon";
+
+    private static final String SELECT_CHANGED = "select " + COLUMNS + " from coupon where updated_at >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final CouponShards couponShards;
+
+    public CouponExportRepository(final DataSource dataSource, final CouponShards couponShards,
+                                  @Value("${coupon.export.fetch-size:1000}") final int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.couponShards = couponShards;
+    }
+
+    /**
+     * Opens a stream over all coupons, ordered by id within each shard. The stream holds a database connection until it is
+     * closed, callers must close it, e.g. with try-with-resources.
+     *
+     * @return The coupons.
+     */
+    public Stream<CouponView> streamAll() {
+        return acrossShards(() -> jdbcTemplate.queryForStream(SELECT_ALL, (rs, rowNum) -> toView(rs)));
+    }
+
+    /**
+     * Opens a stream over the codes of all coupons, in no particular order. Like {@link #streamAll()} the
+     * stream must be closed.
+     *
+     * @return The coupon codes.
+     */
+    public Stream<String> streamCodes() {
+        return acrossShards(() -> jdbcTemplate.queryForStream(SELECT_CODES, (rs, rowNum) -> rs.getString(1)));
+    }
+
+    /**
+     * Opens a stream over the coupons written at or after the given time, in no particular order.
+     * Like {@link #streamAll()} the stream must be closed.
+     *
+     * @param since The earliest update time to include.
+     * @return The changed coupons.
+     */
+    public Stream<CouponView> streamChangedSince(final Instant since) {
+        return acrossShards(() -> jdbcTemplate.queryForStream(SELECT_CHANGED, (rs, rowNum) -> toView(rs),
+            since.atOffset(ZoneOffset.UTC)));
+    }
+
+    // the queries are opened upfront and concatenated, unlike flatMap concat stays lazy when consumed
+    // through an iterator, e.g. by Flux.fromStream, and never buffers a whole shard
+    private <T> Stream<T> acrossShards(final Supplier<Stream<T>> query) {
+        Stream<T> all = null;
+        try {
+            for (int shard = 0; shard < couponShards.count(); shard++) {
+                final Stream<T> rows = couponShards.onShard(shard, query);
+                all = all == null ? rows : Stream.concat(all, rows);
+            }
+            return all;
+        } catch (RuntimeException e) {
+            if (all != null) {
+                all.close();
+            }
+            throw e;
+        }
+    }
+
+    private static CouponView toView(final ResultSet rs) throws SQLException {
+        return CouponView.builder()
+            .id(rs.getLong("id"))
+            .code(rs.getString("code"))
+            .discount(rs.getBigDecimal("discount"))
+            .minBasketValue(rs.getBigDecimal("min_basket_value"))
+            .validFrom(toInstant(rs.getObject("valid_from", OffsetDateTime.class)))
+            .validUntil(toInstant(rs.getObject("valid_until", OffsetDateTime.class)))
+            .maxRedemptions(rs.getObject("max_redemptions", Long.class))
+            .redemptionCount(rs.getLong("redemption_count"))
+            .stackable(rs.getBoolean("stackable"))
+            .stackingGroup(rs.getString("stacking_group"))
+            .updatedAt(toInstant(rs.getObject("updated_at", OffsetDateTime.class)))
+            .build();
+    }
+
+    private static Instant toInstant(final OffsetDateTime timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+}
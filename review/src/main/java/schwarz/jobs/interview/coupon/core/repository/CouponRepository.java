@@ -1,15 +1,56 @@
 package schwarz.jobs.interview.coupon.core.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
 
 public interface CouponRepository extends JpaRepository<Coupon, Long> {
 
 	// you can add a @query anotation if you have complex queries, 
 	// but the method name follows the query method conventions, 
+	// codes are stored normalized (see CouponCodes), so callers must normalize before looking them up
     Optional<Coupon> findByCode(final String code);
 
+    /**
+     * Resolves several coupons with a single {@code IN} query, callers are expected to keep the
+     * number of codes per call bounded.
+     *
+     * @param codes The normalized coupon codes.
+     * @return The coupons found, in no particular order.
+     */
+    List<Coupon> findByCodeIn(final Collection<String> codes);
+
+    /**
+     * Reads one page of coupons with keyset pagination, seeking on the primary key instead of skipping
+     * rows with an offset, so every page costs the same no matter how deep into the table it is.
+     *
+     * @param after The id of the last coupon of the previous page, 0 for the first page.
+     * @param limit The maximum number of coupons to return.
+     * @return The coupons with an id greater than {@code after}, ordered by id.
+     */
+    @Query("select new schwarz.jobs.interview.coupon.core.domain.CouponView(c.id, c.code, c.discount, c.minBasketValue, "
+        + "c.validFrom, c.validUntil, c.maxRedemptions, c.redemptionCount, c.stackable, c.stackingGroup, c.updatedAt) "
+        + "from Coupon c where c.id > :after order by c.id")
+    List<CouponView> findPageAfter(@Param("after") final long after, final Limit limit);
+
+    /**
+     * Adds redemptions to the persisted count with a relative update, so concurrent flushes never lose counts.
+     *
+     * @param id The coupon id.
+     * @param delta The number of redemptions to add.
+     * @return The number of updated rows.
+     */
+    @Modifying
+    @Query("update Coupon c set c.redemptionCount = c.redemptionCount + :delta where c.id = :id")
+    int addRedemptions(@Param("id") final Long id, @Param("delta") final long delta);
+
 }
@@ -0,0 +1,244 @@
+package schwarz.jobs.interview.coupon.core.repository.sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import schwarz.jobs.interview.coupon.core.domain.CouponCodes;
+
+/**
+ * Routes coupon persistence to the shard owning a code, see {@code coupon.sharding}.
+ * <p>
+ * A coupon lives on the shard selected by a stable hash of its normalized code. Repository calls made
+ * inside {@link #onShard(int, Supplier)} use the connections of that shard, the {@link ShardRoutingDataSource}
+ * reads the shard from the calling thread. Point operations run on the caller's thread, operations over
+ * several shards fan out to one virtual thread per shard and are merged afterwards.
+ * <p>
+ * Without sharding there is a single shard and every call runs the action as it is, no routing involved.
+ */
+public class CouponShards implements AutoCloseable {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int count;
+
+    // null with a single shard, nothing is ever fanned out then
+    private final ExecutorService fanOut;
+
+    private CouponShards(final int count, final ExecutorService fanOut) {
+        this.count = count;
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * @return Routing for the unsharded mode, all coupons live in the one datasource.
+     */
+    public static CouponShards single() {
+        return new CouponShards(1, null);
+    }
+
+    /**
+     * @param count The number of shards, must never change once coupons are stored.
+     * @return Routing over the given number of shards.
+     */
+    public static CouponShards of(final int count) {
+        if (count < 2) {
+            return single();
+        }
+        return new CouponShards(count, Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("coupon-shard-", 0).factory()));
+    }
+
+    /**
+     * @return The number of shards.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @param code The coupon code.
+     * @return The index of the shard owning the code.
+     */
+    public int shardOf(final String code) {
+        return shardOf(code, count);
+    }
+
+    /**
+     * The placement of a code, shared with the shard migration. Changing it, or the shard count, would
+     * look up existing coupons on the wrong shard.
+     *
+     * @param code The coupon code.
+     * @param count The number of shards.
+     * @return The index of the shard owning the code.
+     */
+    public static int shardOf(final String code, final int count) {
+        if (count == 1) {
+            return 0;
+        }
+        // String.hashCode is specified by the JLS and stable across JVMs, the mixing spreads similar codes
+        int hash = CouponCodes.normalize(code).hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, count);
+    }
+
+    /**
+     * @return The shard the calling thread is routed to, or null outside of {@link #onShard(int, Supplier)}.
+     */
+    static Integer currentShard() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs an action with all repository calls routed to the given shard. Transactions must be started
+     * inside the action, their connection is bound to the shard when they begin.
+     *
+     * @param shard The shard index.
+     * @param action The action, run on the calling thread.
+     * @return The result of the action.
+     */
+    public <T> T onShard(final int shard, final Supplier<T> action) {
+        if (fanOut == null) {
+            return action.get();
+        }
+        final Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Runs an action routed to the shard owning the given code.
+     *
+     * @see #onShard(int, Supplier)
+     */
+    public <T> T onShardOf(final String code, final Supplier<T> action) {
+        return onShard(shardOf(code), action);
+    }
+
+    /**
+     * Runs an action on every shard in parallel.
+     *
+     * @param action The action, run once per shard.
+     * @return The results, in shard order.
+     */
+    public <T> List<T> onEachShard(final Supplier<T> action) {
+        if (fanOut == null) {
+            return List.of(action.get());
+        }
+        final List<Future<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            final int target = shard;
+            futures.add(fanOut.submit(() -> onShard(target, action)));
+        }
+        return join(futures);
+    }
+
+    /**
+     * Splits items by the shard owning their code and runs an action per shard in parallel, each with
+     * the items of its shard.
+     *
+     * @param items The items.
+     * @param codeOf The code that decides the shard of an item.
+     * @param action Run once per shard with at least one item.
+     * @return The concatenated results of all shards.
+     */
+    public <T, R> List<R> onShardsOf(final Collection<T> items, final Function<T, String> codeOf,
+                                     final Function<List<T>, List<R>> action) {
+        if (fanOut == null) {
+            return items.isEmpty() ? List.of() : action.apply(new ArrayList<>(items));
+        }
+        final List<List<T>> groups = groupByShard(items, codeOf);
+        final List<Future<List<R>>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            final int target = shard;
+            final List<T> group = groups.get(shard);
+            if (!group.isEmpty()) {
+                futures.add(fanOut.submit(() -> onShard(target, () -> action.apply(group))));
+            }
+        }
+        final List<R> results = new ArrayList<>();
+        join(futures).forEach(results::addAll);
+        return results;
+    }
+
+    /**
+     * Splits items by the shard owning their code and runs an action per shard one after the other on the
+     * calling thread, e.g. for writes that update state that is not thread-safe.
+     *
+     * @param items The items.
+     * @param codeOf The code that decides the shard of an item.
+     * @param action Run once per shard with at least one item, routed to that shard.
+     */
+    public <T> void forEachShardGroup(final Collection<T> items, final Function<T, String> codeOf,
+                                      final Consumer<List<T>> action) {
+        if (fanOut == null) {
+            if (!items.isEmpty()) {
+                action.accept(new ArrayList<>(items));
+            }
+            return;
+        }
+        final List<List<T>> groups = groupByShard(items, codeOf);
+        for (int shard = 0; shard < count; shard++) {
+            final List<T> group = groups.get(shard);
+            if (!group.isEmpty()) {
+                onShard(shard, () -> {
+                    action.accept(group);
+                    return null;
+                });
+            }
+        }
+    }
+
+    private <T> List<List<T>> groupByShard(final Collection<T> items, final Function<T, String> codeOf) {
+        final List<List<T>> groups = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            groups.add(new ArrayList<>());
+        }
+        items.forEach(item -> groups.get(shardOf(codeOf.apply(item))).add(item));
+        return groups;
+    }
+
+    private static <T> List<T> join(final List<Future<T>> futures) {
+        final List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the shards");
+        } catch (ExecutionException e) {
+            // the other shards' results are useless now
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Shard operation failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (fanOut != null) {
+            fanOut.close();
+        }
+    }
+}
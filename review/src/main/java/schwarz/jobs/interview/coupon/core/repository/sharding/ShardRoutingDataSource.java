@@ -0,0 +1,41 @@
+package schwarz.jobs.interview.coupon.core.repository.sharding;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Hands out connections of the shard the calling thread is routed to by {@link CouponShards}.
+ * <p>
+ * Connections requested outside of any routing go to shard 0. Only Hibernate's bootstrap and the health
+ * check do that, every coupon query and update is routed.
+ */
+public final class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final List<HikariDataSource> shards;
+
+    public ShardRoutingDataSource(final List<HikariDataSource> shards) {
+        this.shards = List.copyOf(shards);
+        final Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CouponShards.currentShard();
+    }
+
+    @Override
+    public void close() {
+        shards.forEach(HikariDataSource::close);
+    }
+}
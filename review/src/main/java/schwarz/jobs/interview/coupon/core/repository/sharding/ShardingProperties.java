@@ -0,0 +1,50 @@
+package schwarz.jobs.interview.coupon.core.repository.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import lombok.Data;
+
+/**
+ * Settings of the partitioned storage mode, bound from the {@code coupon.sharding} prefix.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "coupon.sharding")
+public class ShardingProperties {
+
+    /**
+     * Whether coupons are partitioned over {@link #getShards()} instead of the single {@code spring.datasource}.
+     */
+    private boolean enabled;
+
+    /**
+     * The shard databases, in shard order. Neither their number nor their order may change once coupons are stored.
+     */
+    @Valid
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+
+        @NotBlank
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /**
+         * Connections per shard.
+         */
+        @Min(1)
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,58 @@
+package schwarz.jobs.interview.coupon.core.repository.sharding;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Shard-only migration, applied to every shard database after the common migrations up to V7.
+ * <p>
+ * Removes the coupons the common migrations seeded into every shard but that belong to another one, and
+ * moves the id sequence of the shard into its own range, so ids stay unique across all shards. Ids of
+ * shard {@code n} start at {@code n * 2^40}. Flyway takes the version from the class name.
+ */
+public class V7_1__Prepare_coupon_shard extends BaseJavaMigration {
+
+    private static final int SEQUENCE_RANGE_BITS = 40;
+
+    private static final long SEQUENCE_START = 1000;
+
+    private final int shard;
+
+    private final int count;
+
+    public V7_1__Prepare_coupon_shard(final int shard, final int count) {
+        this.shard = shard;
+        this.count = count;
+    }
+
+    @Override
+    public void migrate(final Context context) throws Exception {
+        final List<Long> misplaced = new ArrayList<>();
+        try (Statement select = context.getConnection().createStatement();
+             ResultSet rows = select.executeQuery("select id, code from coupon")) {
+            while (rows.next()) {
+                if (CouponShards.shardOf(rows.getString("code"), count) != shard) {
+                    misplaced.add(rows.getLong("id"));
+                }
+            }
+        }
+
+        try (PreparedStatement delete = context.getConnection().prepareStatement("delete from coupon where id = ?")) {
+            for (Long id : misplaced) {
+                delete.setLong(1, id);
+                delete.addBatch();
+            }
+            delete.executeBatch();
+        }
+
+        try (Statement restart = context.getConnection().createStatement()) {
+            restart.execute("alter sequence coupon_seq restart with " + (((long) shard << SEQUENCE_RANGE_BITS) + SEQUENCE_START));
+        }
+    }
+}
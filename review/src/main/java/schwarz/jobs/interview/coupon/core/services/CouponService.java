@@ -1,16 +1,50 @@
 package schwarz.jobs.interview.coupon.core.services;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.domain.CouponCodes;
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
+import schwarz.jobs.interview.coupon.core.repository.CouponExportRepository;
 import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCache;
+import schwarz.jobs.interview.coupon.core.services.exception.CouponNotFoundException;
+import schwarz.jobs.interview.coupon.core.services.exception.InvalidBasketException;
+import schwarz.jobs.interview.coupon.core.services.filter.CouponCodeFilterStore;
+import schwarz.jobs.interview.coupon.core.services.journal.ApplicationJournal;
+import schwarz.jobs.interview.coupon.core.services.metrics.CouponMetrics;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationResult;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationStatus;
 import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.Money;
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+import schwarz.jobs.interview.coupon.core.services.model.StackingResult;
+import schwarz.jobs.interview.coupon.core.services.redemption.RedemptionLedger;
+import schwarz.jobs.interview.coupon.core.services.rules.CouponRuleEngine;
+import schwarz.jobs.interview.coupon.core.services.snapshot.CouponSnapshotStore;
+import schwarz.jobs.interview.coupon.core.services.stacking.CouponStackingEngine;
+import schwarz.jobs.interview.coupon.core.services.stacking.StackingSelection;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
 import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponPageDTO;
 import schwarz.jobs.interview.coupon.web.dto.CouponRequestDTO;
 
 @Service
@@ -18,20 +52,45 @@ import schwarz.jobs.interview.coupon.web.dto.CouponRequestDTO;
 @Slf4j // logging framework to control logging levels, better than sysout
 public class CouponService {
 
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final CouponRepository couponRepository;
 
+    private final CouponShards couponShards;
+
+    private final CouponExportRepository couponExportRepository;
+
+    private final CouponCache couponCache;
+
+    private final CouponSnapshotStore couponSnapshotStore;
+
+    private final CouponCodeFilterStore couponCodeFilterStore;
+
+    private final CouponMetrics couponMetrics;
+
+    private final ApplicationJournal applicationJournal;
+
+    private final CouponRuleEngine couponRuleEngine;
+
+    private final RedemptionLedger redemptionLedger;
+
+    private final CouponStackingEngine couponStackingEngine;
+
     /**
-     * Retrieves a coupon.
+     * Retrieves a coupon, served from the coupon cache whenever possible.
      * 
      * @param code The coupon code.
      * @return An Optional containing the Coupon if found, otherwise an exception is thrown.
-     * @throws IllegalArgumentException If no coupon is found
+     * @throws CouponNotFoundException If no coupon is found
      */
     public Optional<Coupon> getCoupon(final String code) {
     	// If a coupon is not found, it should be handled by .orElseThrow() or ifPresent();
         // also you con avoid the NoSuchElementException
-        return couponRepository.findByCode(code)
-        		.orElseThrow(() -> new IllegalArgumentException("Coupon with code " + code + " not found"));
+        final Coupon coupon = resolve(code)
+        		.orElseThrow(() -> new CouponNotFoundException(List.of(code)));
+        return Optional.of(coupon);
     }
 
     /**
@@ -40,25 +99,256 @@ public class CouponService {
      * @param basket The basket to which the coupon will be applied.
      * @param code The coupon code to be applied to the basket.
      * @return The updated basket with the applied discount.
-     * @throws RuntimeException If the basket value is negative and a discount is attempted to be applied.
+     * @throws InvalidBasketException If the basket value is negative and a discount is attempted to be applied.
+     * @throws CouponNotFoundException If no coupon is found
      */
     public Optional<Basket> apply(final Basket basket, final String code) {
 
-        return getCoupon(code).map(coupon -> {
-        	// it's better to use BigDecimals built-in methods for comparisons
-            if (basket.compareTo(BigDecimal.ZERO) >= 0) {
-                if (basket.compareTo(BigDecimal.ZERO) > 0) {
-                    basket.applyDiscount(coupon.getDiscount());
-                } else // if (basket.getValue().doubleValue() == 0) { we don't need this validation
-                    return basket;
-                }
+        // the basket is validated first, an invalid basket doesn't need a coupon lookup
+        validateBasket(basket, code);
+
+        final Coupon coupon = resolve(code).orElse(null);
+        if (coupon == null) {
+            recordOutcome(code, basket, ApplicationStatus.UNKNOWN_CODE);
+            throw new CouponNotFoundException(List.of(code));
+        }
+
+        return Optional.of(applyCoupon(basket, coupon));
+    }
+
+    /**
+     * Applies an already resolved coupon to a given basket, without any database access.
+     *
+     * @param basket The basket to which the coupon will be applied.
+     * @param coupon The coupon to be applied to the basket.
+     * @return The updated basket with the applied discount.
+     * @throws InvalidBasketException If the basket value is negative and a discount is attempted to be applied.
+     */
+    public Basket apply(final Basket basket, final Coupon coupon) {
+
+        validateBasket(basket, coupon.getCode());
+
+        return applyCoupon(basket, coupon);
+    }
+
+    /**
+     * Returns a coupon only if it can be served from memory, never touching the database.
+     *
+     * @param code The coupon code.
+     * @return An Optional containing the Coupon if it is cached, otherwise empty.
+     */
+    public Optional<Coupon> getCachedCoupon(final String code) {
+        final Coupon snapshotted = couponSnapshotStore.get(code);
+        return snapshotted != null ? Optional.of(snapshotted) : couponCache.getIfPresent(code);
+    }
+
+    /**
+     * Tells from memory whether a code definitely doesn't exist, e.g. to reject it without scheduling a lookup.
+     *
+     * @param code The coupon code.
+     * @return true if no coupon with the code exists, false if one may exist.
+     */
+    public boolean isUnknownCode(final String code) {
+        return !couponCodeFilterStore.mightContain(code);
+    }
+
+    // the snapshot answers reads of the active catalogue without locks, the filter rejects codes that
+    // don't exist without a lookup, the cache covers everything else, e.g. coupons created since the snapshot was built
+    private Optional<Coupon> resolve(final String code) {
+        final Coupon snapshotted = couponSnapshotStore.get(code);
+        if (snapshotted != null) {
+            return Optional.of(snapshotted);
+        }
+        if (!couponCodeFilterStore.mightContain(code)) {
+            couponCodeFilterStore.recordRejected();
+            return Optional.empty();
+        }
+        final Optional<Coupon> coupon = couponCache.get(code, key -> couponShards.onShardOf(key, () -> couponRepository.findByCode(key)));
+        if (coupon.isEmpty()) {
+            couponCodeFilterStore.recordFalsePositive();
+        }
+        return coupon;
+    }
+
+    /**
+     * Applies coupons to many baskets at once. All distinct codes are resolved with one bulk lookup
+     * and the baskets are evaluated afterwards, see {@link #applyItems(List, int, int, Map)}.
+     *
+     * @param requests The basket and coupon code pairs.
+     * @return One result per request, in request order. A failing item doesn't affect the others.
+     */
+    public List<ApplicationResult> applyAll(final List<ApplicationRequestDTO> requests) {
+
+        final Map<String, Coupon> couponsByCode = findCoupons(requests.stream()
+            .map(ApplicationRequestDTO::getCode)
+            .collect(Collectors.toList()));
+
+        return applyItems(requests, 0, requests.size(), couponsByCode);
+    }
+
+    /**
+     * Evaluates a range of a batch against coupons resolved up front with {@link #findCoupons(Collection)}.
+     * Never touches the database, so ranges of one batch can be evaluated on several threads at once.
+     *
+     * @param requests The basket and coupon code pairs of the whole batch.
+     * @param fromIndex Index of the first item to evaluate, inclusive.
+     * @param toIndex Index of the last item to evaluate, exclusive.
+     * @param couponsByCode The coupons of the batch, keyed by their normalized code.
+     * @return One result per evaluated item, in request order, each with its index in the whole batch.
+     */
+    public List<ApplicationResult> applyItems(final List<ApplicationRequestDTO> requests, final int fromIndex,
+                                              final int toIndex, final Map<String, Coupon> couponsByCode) {
+
+        return IntStream.range(fromIndex, toIndex)
+            .mapToObj(index -> applyItem(index, requests.get(index), couponsByCode))
+            .collect(Collectors.toList());
+    }
+
+    private ApplicationResult applyItem(final int index, final ApplicationRequestDTO request,
+                                        final Map<String, Coupon> couponsByCode) {
+
+        final ApplicationResult.ApplicationResultBuilder result = ApplicationResult.builder()
+            .index(index)
+            .code(request.getCode());
+
+        final Coupon coupon = couponsByCode.get(CouponCodes.normalize(request.getCode()));
+        if (coupon == null) {
+            recordOutcome(request.getCode(), request.getBasket(), ApplicationStatus.UNKNOWN_CODE);
+            return result.status(ApplicationStatus.UNKNOWN_CODE)
+                .message("Coupon with code " + request.getCode() + " not found")
+                .build();
+        }
+
+        try {
+            validateBasket(request.getBasket(), request.getCode());
+            final Basket basket = applyCoupon(request.getBasket(), coupon);
+            return result.status(basket.isApplicationSuccessful() ? ApplicationStatus.APPLIED : ApplicationStatus.NOT_APPLIED)
+                .basket(basket)
+                .build();
+        } catch (InvalidBasketException | IllegalArgumentException e) {
+            return result.status(ApplicationStatus.INVALID_BASKET)
+                .message(e.getMessage())
+                .build();
+        }
+    }
+
+    private void validateBasket(final Basket basket, final String code) {
+        // it's better to use BigDecimals built-in methods for comparisons
+        if (basket.getValue().signum() < 0) {
+            log.debug("Tried to apply a negative discount to basket with code: {}", code);
+            recordOutcome(code, basket, ApplicationStatus.INVALID_BASKET);
+            throw new InvalidBasketException("Can't apply negative discounts");
+        }
+    }
+
+    private Basket applyCoupon(final Basket basket, final Coupon coupon) {
+        // an empty basket is returned as it is, there is nothing to discount
+        if (basket.getValue().signum() == 0) {
+            basket.reject(RejectionReason.EMPTY_BASKET);
+        } else {
+            final RejectionReason rejectionReason = couponRuleEngine.evaluate(coupon, basket);
+            if (rejectionReason != null) {
+                basket.reject(rejectionReason);
+            } else if (!redemptionLedger.tryRedeem(coupon)) {
+                // redeemed last, an otherwise rejected basket must not use up the limit
+                basket.reject(RejectionReason.USAGE_LIMIT_REACHED);
+            } else {
+                basket.applyDiscount(coupon.getDiscount());
+            }
+        }
+        recordOutcome(coupon.getCode(), basket, basket.isApplicationSuccessful() ? ApplicationStatus.APPLIED : ApplicationStatus.NOT_APPLIED);
+        return basket;
+    }
+
+    // every outcome is counted and journaled, the journal only queues the record and never blocks
+    private void recordOutcome(final String code, final Basket basket, final ApplicationStatus status) {
+        couponMetrics.recordApplication(status);
+        applicationJournal.record(code, basket, status);
+    }
+
+    /**
+     * Applies the best combination of several coupons to a basket.
+     *
+     * @param basket The basket to which the coupons will be applied.
+     * @param codes The coupon codes, duplicates and differently cased codes count once.
+     * @return The updated basket with the total discount, the applied codes and why the others were not applied.
+     * @throws InvalidBasketException If the basket value is negative.
+     * @throws IllegalArgumentException If more than {@value CouponStackingEngine#MAX_COUPONS} distinct codes are given.
+     * @see CouponStackingEngine
+     */
+    public StackingResult applyStacked(final Basket basket, final List<String> codes) {
+
+        final String joinedCodes = String.join(",", codes);
+        validateBasket(basket, joinedCodes);
+
+        final Set<String> normalizedCodes = new LinkedHashSet<>();
+        codes.forEach(code -> normalizedCodes.add(CouponCodes.normalize(code)));
+        final Map<String, Coupon> couponsByCode = findCoupons(normalizedCodes);
+
+        final Map<String, RejectionReason> rejectedCodes = new HashMap<>();
+        final List<Coupon> coupons = new ArrayList<>(normalizedCodes.size());
+        for (String code : normalizedCodes) {
+            final Coupon coupon = couponsByCode.get(code);
+            if (coupon == null) {
+                rejectedCodes.put(code, RejectionReason.UNKNOWN_CODE);
             } else {
-                log.error("Tried to apply a negative discount to basket with code: {}", code);
-                throw new RuntimeException("Can't apply negative discounts");
+                coupons.add(coupon);
+            }
+        }
+
+        List<Coupon> applied = List.of();
+        long discount = 0;
+        if (basket.getValue().signum() == 0) {
+            coupons.forEach(coupon -> rejectedCodes.put(coupon.getCode(), RejectionReason.EMPTY_BASKET));
+        } else {
+            final long basketValue = Money.toMinorUnitsFloor(basket.getValue());
+            while (true) {
+                final StackingSelection selection = couponStackingEngine.select(coupons, basketValue);
+                final Coupon exhausted = redeemAll(selection.getApplied());
+                if (exhausted == null) {
+                    applied = selection.getApplied();
+                    discount = selection.getDiscount();
+                    rejectedCodes.putAll(selection.getRejected());
+                    break;
+                }
+                // the limit was reached since the coupon was loaded, the best combination without it may differ
+                coupons.removeIf(coupon -> coupon == exhausted);
+                rejectedCodes.put(exhausted.getCode(), RejectionReason.USAGE_LIMIT_REACHED);
             }
+        }
 
-            return basket;
-        });
+        final Map<String, RejectionReason> rejectedInRequestOrder = new LinkedHashMap<>();
+        normalizedCodes.stream()
+            .filter(rejectedCodes::containsKey)
+            .forEach(code -> rejectedInRequestOrder.put(code, rejectedCodes.get(code)));
+
+        if (applied.isEmpty()) {
+            basket.reject(rejectedInRequestOrder.values().iterator().next());
+        } else {
+            basket.applyDiscount(Money.toBigDecimal(discount));
+        }
+        recordOutcome(joinedCodes, basket, basket.isApplicationSuccessful() ? ApplicationStatus.APPLIED : ApplicationStatus.NOT_APPLIED);
+
+        return StackingResult.builder()
+            .basket(basket)
+            .appliedCodes(applied.stream().map(Coupon::getCode).collect(Collectors.toList()))
+            .rejectedCodes(rejectedInRequestOrder)
+            .build();
+    }
+
+    /**
+     * Redeems all coupons of a combination, or none of them.
+     *
+     * @return The first coupon whose usage limit is reached, or null if all were redeemed.
+     */
+    private Coupon redeemAll(final List<Coupon> coupons) {
+        for (int i = 0; i < coupons.size(); i++) {
+            if (!redemptionLedger.tryRedeem(coupons.get(i))) {
+                coupons.subList(0, i).forEach(redemptionLedger::release);
+                return coupons.get(i);
+            }
+        }
+        return null;
     }
 
 	/**
@@ -68,43 +358,139 @@ public class CouponService {
 	 * @return The newly created Coupon object
 	 * @throws IllegalArgumentException If the coupon DTO is is null or empty.
 	 */
+    public Coupon createCoupon(final CouponDTO couponDTO) {
+
+        final Coupon coupon = newCoupon(couponDTO);
+        // added before it is committed, a committed coupon must never be rejected by the filter
+        couponCodeFilterStore.add(coupon.getCode());
+        final Coupon saved = couponShards.onShardOf(coupon.getCode(), () -> couponRepository.save(coupon));
+        couponCache.put(saved);
+        return saved;
+    }
+
+    /**
+     * Validates a new coupon and maps it to a not yet persisted entity, e.g. for write-behind persistence.
+     *
+     * @param couponDTO The DTO containing the coupon details.
+     * @return The new coupon, without id.
+     * @throws IllegalArgumentException If the coupon DTO is is null or empty.
+     */
     // You can validate inputs early and throw a more meaningful exception,
     // catching a NullPointerException it might hide potential issues that needs be handled explicitly
-    public Coupon createCoupon(final CouponDTO couponDTO) {
+    public Coupon newCoupon(final CouponDTO couponDTO) {
     	if (couponDTO == null || couponDTO.getCode() == null || couponDTO.getCode().isEmpty()) {
             throw new IllegalArgumentException("Coupon code cannot be null or empty");
         }
 
-        Coupon coupon = Coupon.builder()
-            .code(couponDTO.getCode().toLowerCase())
-            .discount(couponDTO.getDiscount())
-            .minBasketValue(couponDTO.getMinBasketValue())
+        return couponDTO.toCoupon();
+    }
+
+    /**
+     * Lists coupons page by page, ordered by id. With sharding every shard reads one page after the cursor,
+     * ids are unique across shards, so the first {@code limit} of the merged pages are the global page.
+     *
+     * @param after The cursor returned with the previous page, 0 for the first page.
+     * @param limit The page size, at most {@value #MAX_PAGE_SIZE}.
+     * @return The page, with the cursor of the next page unless this was the last one.
+     */
+    public CouponPageDTO getCouponPage(final long after, final int limit) {
+
+        final List<CouponView> items = couponShards.onEachShard(() -> couponRepository.findPageAfter(after, Limit.of(limit)))
+            .stream()
+            .flatMap(List::stream)
+            .sorted(Comparator.comparingLong(CouponView::getId))
+            .limit(limit)
+            .collect(Collectors.toList());
+
+        // a full page may be followed by more coupons, a short page is the last one
+        final Long nextCursor = items.size() < limit ? null : items.get(items.size() - 1).getId();
+        return CouponPageDTO.builder()
+            .items(items)
+            .nextCursor(nextCursor)
             .build();
+    }
 
-        return couponRepository.save(coupon);
+    /**
+     * Streams all coupons straight from the database, ordered by id within each shard.
+     *
+     * @return The coupons. The stream holds a database connection and must be closed.
+     */
+    public Stream<CouponView> streamCoupons() {
+        return couponExportRepository.streamAll();
     }
 
     /**
-     * Retrieves a list of coupons.
+     * Retrieves a list of coupons, resolving all codes with bulk queries instead of one query per code.
      * 
      * @param couponRequestDTO The DTO containing a list of coupon codes.
-     * @return A list of Coupon objects.
-     * @throws IllegalArgumentException If any of the coupon codes are invalid or not found.
+     * @return A list of Coupon objects, in the order of the requested codes.
+     * @throws CouponNotFoundException If any of the coupon codes are not found, listing all missing codes.
      */
     public List<Coupon> getCoupons(final CouponRequestDTO couponRequestDTO) {
 
-        final ArrayList<Coupon> foundCoupons = new ArrayList<>();
+        final Map<String, Coupon> couponsByCode = findCoupons(couponRequestDTO.getCodes());
+
+        final List<Coupon> foundCoupons = new ArrayList<>(couponRequestDTO.getCodes().size());
+        final List<String> missingCodes = new ArrayList<>();
 
-        // couponRequestDTO.getCodes().forEach(code -> foundCoupons.add(couponRepository.findByCode(code).get()));
-        // If a coupon is not found, it should be handled by .orElseThrow() or ifPresent();
-        // also you con avoid the NoSuchElementException
         for (String code : couponRequestDTO.getCodes()) {
-            Coupon coupon = couponRepository.findByCode(code)
-            // if we want, we can create a class to handle exceptions if we have a lot of them, e.g. CuponNotFoundException
-                .orElseThrow(() -> new IllegalArgumentException("Coupon with code " + code + " not found"));
-            foundCoupons.add(coupon);
+            final Coupon coupon = couponsByCode.get(CouponCodes.normalize(code));
+            if (coupon == null) {
+                missingCodes.add(code);
+            } else {
+                foundCoupons.add(coupon);
+            }
+        }
+
+        if (!missingCodes.isEmpty()) {
+            throw new CouponNotFoundException(missingCodes);
         }
-        
+
         return foundCoupons;
     }
+
+    /**
+     * Resolves the given codes from the cache first and loads the remaining ones from the database
+     * in chunks of {@value #LOOKUP_CHUNK_SIZE} codes per query.
+     *
+     * @param codes The coupon codes, duplicates and differently cased codes are resolved once.
+     * @return The coupons found, keyed by their normalized code. Unknown codes are absent.
+     */
+    public Map<String, Coupon> findCoupons(final Collection<String> codes) {
+
+        final Map<String, Coupon> couponsByCode = new HashMap<>();
+        final List<String> uncachedCodes = new ArrayList<>();
+
+        final Set<String> normalizedCodes = new LinkedHashSet<>();
+        codes.forEach(code -> normalizedCodes.add(CouponCodes.normalize(code)));
+
+        for (String normalizedCode : normalizedCodes) {
+            getCachedCoupon(normalizedCode).ifPresentOrElse(
+                coupon -> couponsByCode.put(normalizedCode, coupon),
+                () -> {
+                    if (couponCodeFilterStore.mightContain(normalizedCode)) {
+                        uncachedCodes.add(normalizedCode);
+                    } else {
+                        couponCodeFilterStore.recordRejected();
+                    }
+                });
+        }
+
+        // every shard only gets asked for its own codes, the shards are queried in parallel
+        for (Coupon coupon : couponShards.onShardsOf(uncachedCodes, code -> code, this::findByCodes)) {
+            couponsByCode.put(CouponCodes.normalize(coupon.getCode()), coupon);
+            couponCache.put(coupon);
+        }
+
+        return couponsByCode;
+    }
+
+    private List<Coupon> findByCodes(final List<String> normalizedCodes) {
+        final List<Coupon> found = new ArrayList<>();
+        for (int from = 0; from < normalizedCodes.size(); from += LOOKUP_CHUNK_SIZE) {
+            found.addAll(couponRepository.findByCodeIn(
+                normalizedCodes.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, normalizedCodes.size()))));
+        }
+        return found;
+    }
 }
@@ -0,0 +1,144 @@
+package schwarz.jobs.interview.coupon.core.services;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationResult;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.StackingResult;
+import schwarz.jobs.interview.coupon.core.services.writebehind.CouponWriteBehindQueue;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponPageDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponRequestDTO;
+
+/**
+ * Non-blocking facade of the {@link CouponService}.
+ * <p>
+ * Work that can be answered from memory runs on the calling thread, everything that may reach the
+ * database is moved to the bounded {@code jdbcScheduler}, so event-loop threads never block on JDBC.
+ * Large batches are evaluated in chunks on the {@code batchScheduler}, which is sized to the CPUs.
+ */
+@Service
+public class ReactiveCouponService {
+
+    /**
+     * Items of a batch evaluated per task, smaller batches are evaluated as one chunk.
+     */
+    static final int BATCH_CHUNK_SIZE = 256;
+
+    private final CouponService couponService;
+
+    private final Scheduler jdbcScheduler;
+
+    private final Scheduler batchScheduler;
+
+    // only present with coupon.write-behind.enabled
+    private final CouponWriteBehindQueue writeBehindQueue;
+
+    public ReactiveCouponService(final CouponService couponService,
+                                 @Qualifier("jdbcScheduler") final Scheduler jdbcScheduler,
+                                 @Qualifier("batchScheduler") final Scheduler batchScheduler,
+                                 final ObjectProvider<CouponWriteBehindQueue> writeBehindQueue) {
+        this.couponService = couponService;
+        this.jdbcScheduler = jdbcScheduler;
+        this.batchScheduler = batchScheduler;
+        this.writeBehindQueue = writeBehindQueue.getIfAvailable();
+    }
+
+    /**
+     * @see CouponService#apply(Basket, String)
+     */
+    public Mono<Basket> apply(final Basket basket, final String code) {
+
+        // cached coupons and codes the filter rules out never touch the database, no need to switch threads for them
+        return Mono.defer(() -> couponService.getCachedCoupon(code)
+            .map(coupon -> Mono.fromCallable(() -> couponService.apply(basket, coupon)))
+            .orElseGet(() -> couponService.isUnknownCode(code)
+                ? Mono.fromCallable(() -> couponService.apply(basket, code).orElse(null))
+                : blocking(() -> couponService.apply(basket, code).orElse(null))));
+    }
+
+    /**
+     * Resolves all codes of the batch with one bulk lookup, then evaluates the baskets in chunks of
+     * {@value #BATCH_CHUNK_SIZE}, at most as many chunks at once as the {@code batchScheduler} has threads.
+     *
+     * @see CouponService#applyAll(List)
+     */
+    public Mono<List<ApplicationResult>> applyAll(final List<ApplicationRequestDTO> requests) {
+        final List<String> codes = requests.stream().map(ApplicationRequestDTO::getCode).collect(Collectors.toList());
+        final int chunks = (requests.size() + BATCH_CHUNK_SIZE - 1) / BATCH_CHUNK_SIZE;
+
+        return blocking(() -> couponService.findCoupons(codes))
+            // flatMapSequential keeps the chunks, and so the results, in request order
+            .flatMapMany(couponsByCode -> Flux.range(0, chunks)
+                .flatMapSequential(chunk -> Mono.fromCallable(() -> couponService.applyItems(requests,
+                        chunk * BATCH_CHUNK_SIZE, Math.min(requests.size(), (chunk + 1) * BATCH_CHUNK_SIZE), couponsByCode))
+                    .subscribeOn(batchScheduler), Schedulers.DEFAULT_POOL_SIZE))
+            .flatMapIterable(Function.identity())
+            .collectList();
+    }
+
+    /**
+     * @see CouponService#applyStacked(Basket, List)
+     */
+    public Mono<StackingResult> applyStacked(final Basket basket, final List<String> codes) {
+        return blocking(() -> couponService.applyStacked(basket, codes));
+    }
+
+    /**
+     * Creates a coupon, with write-behind enabled it is queued for the next group commit instead of being
+     * saved on its own. Either way the returned Mono completes only once the coupon is committed.
+     *
+     * @see CouponService#createCoupon(CouponDTO)
+     * @see CouponWriteBehindQueue#submit(Coupon)
+     */
+    public Mono<Coupon> createCoupon(final CouponDTO couponDTO) {
+        if (writeBehindQueue == null) {
+            return blocking(() -> couponService.createCoupon(couponDTO));
+        }
+        // submit looks the code up first, so it runs on the jdbc scheduler as well
+        return blocking(() -> writeBehindQueue.submit(couponService.newCoupon(couponDTO))).flatMap(future -> Mono.fromFuture(future));
+    }
+
+    /**
+     * @see CouponService#getCoupons(CouponRequestDTO)
+     */
+    public Flux<Coupon> getCoupons(final CouponRequestDTO couponRequestDTO) {
+        return blocking(() -> couponService.getCoupons(couponRequestDTO)).flatMapMany(Flux::fromIterable);
+    }
+
+    /**
+     * @see CouponService#getCouponPage(long, int)
+     */
+    public Mono<CouponPageDTO> getCouponPage(final long after, final int limit) {
+        return blocking(() -> couponService.getCouponPage(after, limit));
+    }
+
+    /**
+     * Streams all coupons, reading further rows only as fast as the subscriber consumes them.
+     * The export occupies one {@code jdbcScheduler} thread and one connection until it completes or is cancelled.
+     *
+     * @see CouponService#streamCoupons()
+     */
+    public Flux<CouponView> exportCoupons() {
+        // fromStream closes the stream, and with it the connection, on completion, error and cancellation
+        return Flux.fromStream(couponService::streamCoupons).subscribeOn(jdbcScheduler);
+    }
+
+    private <T> Mono<T> blocking(final Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(jdbcScheduler);
+    }
+}
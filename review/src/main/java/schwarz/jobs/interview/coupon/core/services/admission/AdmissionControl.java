@@ -0,0 +1,91 @@
+package schwarz.jobs.interview.coupon.core.services.admission;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import schwarz.jobs.interview.coupon.core.services.exception.AdmissionRejectedException;
+
+/**
+ * Admission control in front of the endpoints that reach the database, so a slow database sheds load with
+ * fast 503s instead of piling up requests until threads and connections run out and every request is slow.
+ * <p>
+ * Every {@link Endpoint} has its own adaptive concurrency limit and queue, see {@link ConcurrencyLimiter}.
+ * Apply traffic can't starve creates and the other way round.
+ */
+@Component
+public class AdmissionControl implements MeterBinder {
+
+    /**
+     * The endpoints limited separately.
+     */
+    public enum Endpoint {
+        APPLY,
+        CREATE
+    }
+
+    private final boolean enabled;
+
+    private final Map<Endpoint, ConcurrencyLimiter> limiters = new EnumMap<>(Endpoint.class);
+
+    public AdmissionControl(final AdmissionProperties properties) {
+        this.enabled = properties.isEnabled();
+        // queue deadlines only schedule a timer, they never block a thread
+        final Scheduler timer = Schedulers.parallel();
+        limiters.put(Endpoint.APPLY, new ConcurrencyLimiter("apply", properties.getApply(), timer));
+        limiters.put(Endpoint.CREATE, new ConcurrencyLimiter("create", properties.getCreate(), timer));
+    }
+
+    /**
+     * Runs the request once the endpoint has capacity for it.
+     *
+     * @param endpoint The endpoint the request counts against.
+     * @param work The request, only subscribed once it is admitted.
+     * @return The result of the request, or an {@link AdmissionRejectedException} if it was shed.
+     */
+    public <T> Mono<T> admit(final Endpoint endpoint, final Mono<T> work) {
+        if (!enabled) {
+            return work;
+        }
+        return limiters.get(endpoint).admit(work);
+    }
+
+    /**
+     * Publishes the current limit, the running and queued requests and the rejections per endpoint.
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        limiters.forEach((endpoint, limiter) -> {
+            final String name = endpoint.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("coupon.admission.limit", limiter, ConcurrencyLimiter::limit)
+                .description("Current adaptive concurrency limit")
+                .tag("endpoint", name)
+                .register(registry);
+            Gauge.builder("coupon.admission.in-flight", limiter, ConcurrencyLimiter::inFlight)
+                .description("Admitted requests still running")
+                .tag("endpoint", name)
+                .register(registry);
+            Gauge.builder("coupon.admission.queued", limiter, ConcurrencyLimiter::queued)
+                .description("Requests waiting for admission")
+                .tag("endpoint", name)
+                .register(registry);
+            FunctionCounter.builder("coupon.admission.rejected", limiter, ConcurrencyLimiter::rejectedQueueFull)
+                .description("Requests shed instead of admitted")
+                .tags("endpoint", name, "reason", "queue-full")
+                .register(registry);
+            FunctionCounter.builder("coupon.admission.rejected", limiter, ConcurrencyLimiter::rejectedTimeout)
+                .description("Requests shed instead of admitted")
+                .tags("endpoint", name, "reason", "timeout")
+                .register(registry);
+        });
+    }
+}
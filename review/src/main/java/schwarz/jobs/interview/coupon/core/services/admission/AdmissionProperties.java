@@ -0,0 +1,80 @@
+package schwarz.jobs.interview.coupon.core.services.admission;
+
+import java.time.Duration;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import lombok.Data;
+
+/**
+ * Settings of the admission control, bound from the {@code coupon.admission} prefix.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "coupon.admission")
+public class AdmissionProperties {
+
+    /**
+     * Whether apply and create requests are limited, when disabled every request is admitted.
+     */
+    private boolean enabled = true;
+
+    @Valid
+    @NotNull
+    private EndpointLimit apply = new EndpointLimit();
+
+    @Valid
+    @NotNull
+    private EndpointLimit create = new EndpointLimit();
+
+    /**
+     * Concurrency limit and queue of one endpoint.
+     */
+    @Data
+    public static class EndpointLimit {
+
+        /**
+         * Concurrent requests admitted at startup, the limit adapts from there.
+         */
+        @Min(1)
+        private int initialLimit = 64;
+
+        @Min(1)
+        private int minLimit = 4;
+
+        @Min(1)
+        private int maxLimit = 512;
+
+        /**
+         * Requests taking longer than this signal overload and shrink the limit, faster requests let it grow.
+         */
+        @NotNull
+        private Duration latencyThreshold = Duration.ofMillis(200);
+
+        /**
+         * Factor the limit is multiplied with on overload.
+         */
+        @DecimalMin("0.1")
+        @DecimalMax("0.99")
+        private double backoffRatio = 0.9;
+
+        /**
+         * Requests waiting for a free slot, further requests are rejected right away.
+         */
+        @Min(0)
+        private int queueCapacity = 128;
+
+        /**
+         * How long a request waits in the queue before it is rejected.
+         */
+        @NotNull
+        private Duration maxQueueWait = Duration.ofMillis(50);
+    }
+}
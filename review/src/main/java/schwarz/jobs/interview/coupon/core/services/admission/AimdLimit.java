@@ -0,0 +1,72 @@
+package schwarz.jobs.interview.coupon.core.services.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Concurrency limit adjusted by additive increase, multiplicative decrease, the way TCP sizes its window.
+ * <p>
+ * A request slower than the latency threshold multiplies the limit by the backoff ratio, at most once per
+ * threshold, so a burst of slow requests that were all admitted under the old limit backs off once and not
+ * once per request. A fast request grows the limit by {@code 1 / limit}, about one slot per limit's worth of
+ * requests, but only while the limit is actually used, an idle endpoint doesn't grow an unproven limit.
+ */
+final class AimdLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final double backoffRatio;
+
+    // the limit as raw double bits, updated with compare-and-set
+    private final AtomicLong limit;
+
+    private final AtomicLong lastDecreaseNanos;
+
+    AimdLimit(final AdmissionProperties.EndpointLimit properties) {
+        this.minLimit = properties.getMinLimit();
+        this.maxLimit = Math.max(minLimit, properties.getMaxLimit());
+        this.latencyThresholdNanos = properties.getLatencyThreshold().toNanos();
+        this.backoffRatio = properties.getBackoffRatio();
+        this.limit = new AtomicLong(Double.doubleToRawLongBits(
+            Math.max(minLimit, Math.min(maxLimit, properties.getInitialLimit()))));
+        this.lastDecreaseNanos = new AtomicLong(System.nanoTime() - latencyThresholdNanos);
+    }
+
+    /**
+     * @return The number of requests that may currently run at once.
+     */
+    int get() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    /**
+     * Adjusts the limit to one completed request.
+     *
+     * @param latencyNanos How long the request ran after it was admitted.
+     * @param inFlight The number of requests running when it completed, itself included.
+     */
+    void onSample(final long latencyNanos, final int inFlight) {
+        if (latencyNanos > latencyThresholdNanos) {
+            final long now = System.nanoTime();
+            final long last = lastDecreaseNanos.get();
+            if (now - last >= latencyThresholdNanos && lastDecreaseNanos.compareAndSet(last, now)) {
+                update(current -> Math.max(minLimit, current * backoffRatio));
+            }
+        } else if (inFlight * 2 >= get()) {
+            update(current -> Math.min(maxLimit, current + 1 / current));
+        }
+    }
+
+    private void update(final DoubleUnaryOperator adjustment) {
+        long bits;
+        long next;
+        do {
+            bits = limit.get();
+            next = Double.doubleToRawLongBits(adjustment.applyAsDouble(Double.longBitsToDouble(bits)));
+        } while (!limit.compareAndSet(bits, next));
+    }
+}
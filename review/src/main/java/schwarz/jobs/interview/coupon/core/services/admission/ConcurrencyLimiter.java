@@ -0,0 +1,188 @@
+package schwarz.jobs.interview.coupon.core.services.admission;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import schwarz.jobs.interview.coupon.core.services.exception.AdmissionRejectedException;
+
+/**
+ * Admits the requests of one endpoint up to an adaptive concurrency limit, see {@link AimdLimit}.
+ * <p>
+ * A request over the limit waits in a bounded FIFO queue, for at most the configured deadline. Whenever a
+ * request completes or one is queued, queued requests are started while slots are free. A request is only
+ * started by whoever wins its {@code claimed} flag, so a waiter that timed out or whose client went away
+ * concurrently is never started, and never holds a slot.
+ */
+final class ConcurrencyLimiter {
+
+    private final String name;
+
+    private final AimdLimit limit;
+
+    private final int queueCapacity;
+
+    private final long maxQueueWaitNanos;
+
+    private final Scheduler timer;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Queue<Waiter<?>> queue = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder rejectedQueueFull = new LongAdder();
+
+    private final LongAdder rejectedTimeout = new LongAdder();
+
+    ConcurrencyLimiter(final String name, final AdmissionProperties.EndpointLimit properties, final Scheduler timer) {
+        this.name = name;
+        this.limit = new AimdLimit(properties);
+        this.queueCapacity = properties.getQueueCapacity();
+        this.maxQueueWaitNanos = properties.getMaxQueueWait().toNanos();
+        this.timer = timer;
+    }
+
+    /**
+     * @param work The request, subscribed once it is admitted.
+     * @return The result of the request, or an {@link AdmissionRejectedException} if it was shed.
+     */
+    <T> Mono<T> admit(final Mono<T> work) {
+        return Mono.create(sink -> {
+            // queued requests go first, a new one only takes a free slot directly if nobody is waiting
+            if (queue.isEmpty() && tryAcquire()) {
+                sink.onCancel(start(work, sink));
+                return;
+            }
+            if (queued.incrementAndGet() > queueCapacity) {
+                queued.decrementAndGet();
+                rejectedQueueFull.increment();
+                sink.error(new AdmissionRejectedException("Too many concurrent " + name + " requests, retry later"));
+                return;
+            }
+            final Waiter<T> waiter = new Waiter<>(work, sink);
+            waiter.deadline = timer.schedule(() -> expire(waiter), maxQueueWaitNanos, TimeUnit.NANOSECONDS);
+            // a sink takes a single cancel callback, it covers the waiter both queued and started
+            sink.onCancel(() -> {
+                if (waiter.claim()) {
+                    waiter.deadline.dispose();
+                    queued.decrementAndGet();
+                } else if (waiter.running != null) {
+                    waiter.running.dispose();
+                }
+            });
+            queue.add(waiter);
+            drain();
+        });
+    }
+
+    int limit() {
+        return limit.get();
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    int queued() {
+        return queued.get();
+    }
+
+    long rejectedQueueFull() {
+        return rejectedQueueFull.sum();
+    }
+
+    long rejectedTimeout() {
+        return rejectedTimeout.sum();
+    }
+
+    private boolean tryAcquire() {
+        int current = inFlight.get();
+        while (current < limit.get()) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = inFlight.get();
+        }
+        return false;
+    }
+
+    private <T> Disposable start(final Mono<T> work, final MonoSink<T> sink) {
+        final long startNanos = System.nanoTime();
+        return work
+            .doFinally(signal -> release(signal == SignalType.CANCEL ? -1 : System.nanoTime() - startNanos))
+            .subscribe(sink::success, sink::error, sink::success);
+    }
+
+    // a cancelled request says nothing about the latency of the endpoint, it only frees its slot
+    private void release(final long latencyNanos) {
+        final int completedInFlight = inFlight.getAndDecrement();
+        if (latencyNanos >= 0) {
+            limit.onSample(latencyNanos, completedInFlight);
+        }
+        drain();
+    }
+
+    private void drain() {
+        while (!queue.isEmpty() && tryAcquire()) {
+            Waiter<?> waiter;
+            do {
+                waiter = queue.poll();
+            } while (waiter != null && !waiter.claim());
+
+            if (waiter == null) {
+                // only timed out or cancelled waiters were left
+                inFlight.decrementAndGet();
+                return;
+            }
+            waiter.deadline.dispose();
+            queued.decrementAndGet();
+            waiter.start();
+        }
+    }
+
+    private void expire(final Waiter<?> waiter) {
+        if (waiter.claim()) {
+            queued.decrementAndGet();
+            rejectedTimeout.increment();
+            waiter.sink.error(new AdmissionRejectedException("Waited too long for a free " + name + " slot, retry later"));
+        }
+    }
+
+    private final class Waiter<T> {
+
+        private final Mono<T> work;
+
+        private final MonoSink<T> sink;
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        // assigned before the waiter is queued
+        private Disposable deadline;
+
+        private volatile Disposable running;
+
+        Waiter(final Mono<T> work, final MonoSink<T> sink) {
+            this.work = work;
+            this.sink = sink;
+        }
+
+        // exactly one of starting, expiring and cancelling wins
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        void start() {
+            running = ConcurrencyLimiter.this.start(work, sink);
+        }
+    }
+}
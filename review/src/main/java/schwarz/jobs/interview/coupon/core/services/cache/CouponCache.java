@@ -0,0 +1,217 @@
+package schwarz.jobs.interview.coupon.core.services.cache;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.domain.CouponCodes;
+
+/**
+ * Bounded, read-mostly cache of coupons keyed by their normalized code.
+ * <p>
+ * Entries are loaded on demand and written through by the service whenever a coupon is created,
+ * so the apply path normally never has to go to the database.
+ * <p>
+ * Loads are coalesced: concurrent misses for the same code wait for a single in-flight load instead of each
+ * querying the database, which keeps a cold or just expired hot code from stampeding the database. Codes the
+ * loader doesn't find are remembered for {@link CouponCacheProperties#getNegativeTtl()}, so repeated guesses
+ * of unknown codes are answered from memory as well.
+ */
+@Component
+public class CouponCache implements MeterBinder {
+
+    // values are completed futures, except while a load is in flight. A load that finds nothing completes
+    // with null, which Caffeine removes, the miss is then remembered in unknownCodes
+    private final AsyncCache<String, Coupon> cache;
+
+    private final Cache<String, Boolean> unknownCodes;
+
+    public CouponCache(final CouponCacheProperties properties) {
+        final Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getExpireAfterWrite())
+            .recordStats();
+
+        if (properties.getExpireAfterAccess() != null) {
+            builder.expireAfterAccess(properties.getExpireAfterAccess());
+        }
+
+        this.cache = builder.buildAsync();
+        this.unknownCodes = Caffeine.newBuilder()
+            .maximumSize(properties.getNegativeMaximumSize())
+            .expireAfterWrite(properties.getNegativeTtl())
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns the cached coupon for the given code, loading and caching it on a miss. Concurrent calls
+     * for the same code share one load, the loader runs on the thread of the caller that claims it.
+     *
+     * @param code The coupon code, normalized before it is used as key.
+     * @param loader Loads the coupon for the normalized code when it is not cached yet.
+     * @return An Optional containing the coupon, or empty if the loader did not find it.
+     */
+    public Optional<Coupon> get(final String code, final Function<String, Optional<Coupon>> loader) {
+        final String key = CouponCodes.normalize(code);
+
+        if (unknownCodes.getIfPresent(key) != null) {
+            return Optional.empty();
+        }
+
+        // hits get the completed future without allocating, only the first miss creates a PendingLoad
+        final CompletableFuture<Coupon> entry = cache.get(key, (k, executor) -> new PendingLoad());
+        if (entry instanceof PendingLoad pending && pending.claim()) {
+            load(key, loader, pending);
+        }
+        return Optional.ofNullable(join(entry));
+    }
+
+    private void load(final String key, final Function<String, Optional<Coupon>> loader, final PendingLoad pending) {
+        try {
+            final Coupon loaded = loader.apply(key).orElse(null);
+            if (loaded == null) {
+                // remembered before the waiters are released, so callers arriving after them don't load again.
+                // Only while the entry is still this load: a coupon put meanwhile, e.g. just created, replaced it
+                // and must not be hidden behind the negative entry. Runs atomically with put on the same key
+                cache.asMap().computeIfPresent(key, (k, entry) -> {
+                    if (entry == pending) {
+                        unknownCodes.put(key, Boolean.TRUE);
+                    }
+                    return entry;
+                });
+            }
+            pending.complete(loaded);
+        } catch (RuntimeException e) {
+            // Caffeine drops failed futures, the next call loads again
+            pending.completeExceptionally(e);
+        }
+    }
+
+    private static Coupon join(final CompletableFuture<Coupon> entry) {
+        try {
+            return entry.join();
+        } catch (CompletionException e) {
+            // rethrow what the loader threw, e.g. a DataAccessException, for the usual error handling
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the cached coupon for the given code without loading it.
+     *
+     * @param code The coupon code.
+     * @return An Optional containing the coupon, or empty if it is not cached or still being loaded.
+     */
+    public Optional<Coupon> getIfPresent(final String code) {
+        final CompletableFuture<Coupon> entry = cache.getIfPresent(CouponCodes.normalize(code));
+        if (entry == null || !entry.isDone() || entry.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(entry.getNow(null));
+    }
+
+    /**
+     * Writes a coupon through to the cache, replacing any previous entry for its code.
+     *
+     * @param coupon The coupon to cache.
+     */
+    public void put(final Coupon coupon) {
+        final String key = CouponCodes.normalize(coupon.getCode());
+        cache.put(key, CompletableFuture.completedFuture(coupon));
+        unknownCodes.invalidate(key);
+    }
+
+    /**
+     * Caches a coupon only if no coupon with its code is cached. An in-flight load of the code is waited for,
+     * so a coupon the loader finds is never shadowed, the calling thread may therefore block.
+     *
+     * @param coupon The coupon to cache.
+     * @return true if the coupon was cached, false if a coupon with its code is cached already.
+     */
+    public boolean putIfAbsent(final Coupon coupon) {
+        final String key = CouponCodes.normalize(coupon.getCode());
+        final CompletableFuture<Coupon> value = CompletableFuture.completedFuture(coupon);
+        while (true) {
+            final CompletableFuture<Coupon> existing = cache.asMap().putIfAbsent(key, value);
+            if (existing == null) {
+                unknownCodes.invalidate(key);
+                return true;
+            }
+            if (existing.exceptionally(e -> null).join() != null) {
+                return false;
+            }
+            // a load that found nothing or failed, Caffeine may not have dropped it yet
+            cache.asMap().remove(key, existing);
+        }
+    }
+
+    /**
+     * Removes the given coupon from the cache, unless its code has been cached with another coupon since.
+     *
+     * @param coupon The coupon that was cached.
+     */
+    public void remove(final Coupon coupon) {
+        final String key = CouponCodes.normalize(coupon.getCode());
+        cache.asMap().computeIfPresent(key, (k, entry) ->
+            entry.isDone() && !entry.isCompletedExceptionally() && entry.getNow(null) == coupon ? null : entry);
+    }
+
+    /**
+     * Removes the coupon with the given code from the cache.
+     *
+     * @param code The coupon code.
+     */
+    public void invalidate(final String code) {
+        final String key = CouponCodes.normalize(code);
+        cache.synchronous().invalidate(key);
+        unknownCodes.invalidate(key);
+    }
+
+    /**
+     * @return The hit, miss and eviction counters of the cache.
+     */
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    /**
+     * Publishes the hit, miss and eviction counters as {@code cache.*} metrics tagged {@code cache=coupons}.
+     * Every miss is a database lookup, so the miss ratio is also the database hit ratio. Remembered unknown
+     * codes are tagged {@code cache=unknown-coupons}, each of their hits is a database lookup saved.
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "coupons");
+        CaffeineCacheMetrics.monitor(registry, unknownCodes, "unknown-coupons");
+    }
+
+    /**
+     * In-flight load of one code. The caller that claims it runs the loader, everyone else waits for it.
+     */
+    private static final class PendingLoad extends CompletableFuture<Coupon> {
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        boolean claim() {
+            return !claimed.get() && claimed.compareAndSet(false, true);
+        }
+    }
+}
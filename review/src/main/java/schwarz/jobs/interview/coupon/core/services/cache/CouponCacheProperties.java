@@ -0,0 +1,50 @@
+package schwarz.jobs.interview.coupon.core.services.cache;
+
+import java.time.Duration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import lombok.Data;
+
+/**
+ * Settings of the in-memory coupon cache, bound from the {@code coupon.cache} prefix.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "coupon.cache")
+public class CouponCacheProperties {
+
+    /**
+     * Maximum number of coupons kept in memory, least recently used entries are evicted first.
+     */
+    @Min(0)
+    private long maximumSize = 10_000;
+
+    /**
+     * Time after which a cached coupon is reloaded from the database.
+     */
+    @NotNull
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+    /**
+     * Optional time after which a coupon that has not been read is evicted, disabled when empty.
+     */
+    private Duration expireAfterAccess;
+
+    /**
+     * Time for which a code that is not in the database is remembered as unknown, zero disables it.
+     * Coupons created through this instance are visible at once, imported ones after at most this time.
+     */
+    @NotNull
+    private Duration negativeTtl = Duration.ofSeconds(5);
+
+    /**
+     * Maximum number of unknown codes remembered, guessed codes evict each other instead of growing the heap.
+     */
+    @Min(0)
+    private long negativeMaximumSize = 100_000;
+}
@@ -0,0 +1,15 @@
+package schwarz.jobs.interview.coupon.core.services.exception;
+
+/**
+ * Thrown when a request is shed because its endpoint is at its concurrency limit and the request couldn't
+ * be queued or waited too long in the queue, the client should retry later.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public AdmissionRejectedException(final String message) {
+        // shed requests are expected under overload, capturing a stack trace for each would add to it
+        super(message, null, false, false);
+    }
+}
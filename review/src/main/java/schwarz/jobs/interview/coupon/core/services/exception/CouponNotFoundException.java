@@ -0,0 +1,38 @@
+package schwarz.jobs.interview.coupon.core.services.exception;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when one or more requested coupon codes do not exist.
+ */
+public class CouponNotFoundException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    // only read by the handler that turns the exception into a response, never serialized
+    private final transient List<String> missingCodes;
+
+    public CouponNotFoundException(final List<String> missingCodes) {
+        super(missingCodes.size() == 1
+            ? "Coupon with code " + missingCodes.get(0) + " not found"
+            : "Coupons with codes " + missingCodes + " not found");
+        this.missingCodes = Collections.unmodifiableList(missingCodes);
+    }
+
+    /**
+     * Skips capturing the stack trace. Unknown codes are client errors that are never logged with their
+     * trace, and guessed codes are frequent enough for the capture to show up in profiles.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    /**
+     * @return The requested codes that could not be found, in request order.
+     */
+    public List<String> getMissingCodes() {
+        return missingCodes;
+    }
+}
@@ -0,0 +1,13 @@
+package schwarz.jobs.interview.coupon.core.services.exception;
+
+/**
+ * Thrown when an idempotency key is sent again with a different request than the one it was first used for.
+ */
+public class IdempotencyKeyReuseException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyKeyReuseException(final String idempotencyKey) {
+        super("Idempotency key " + idempotencyKey + " was already used for a different request");
+    }
+}
@@ -0,0 +1,13 @@
+package schwarz.jobs.interview.coupon.core.services.exception;
+
+/**
+ * Thrown when a coupon is applied to a basket that can't be discounted, e.g. one with a negative value.
+ */
+public class InvalidBasketException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidBasketException(final String message) {
+        super(message);
+    }
+}
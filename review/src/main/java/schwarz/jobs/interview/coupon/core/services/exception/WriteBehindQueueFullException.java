@@ -0,0 +1,13 @@
+package schwarz.jobs.interview.coupon.core.services.exception;
+
+/**
+ * Thrown when a create can't be queued because the write-behind queue is full, the client should retry later.
+ */
+public class WriteBehindQueueFullException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public WriteBehindQueueFullException(final String message) {
+        super(message);
+    }
+}
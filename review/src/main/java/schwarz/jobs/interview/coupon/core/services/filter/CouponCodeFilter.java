@@ -0,0 +1,137 @@
+package schwarz.jobs.interview.coupon.core.services.filter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over normalized coupon codes.
+ * <p>
+ * {@link #mightContain(String)} never returns false for a code that was added, it may return true for a
+ * code that wasn't with roughly the false positive rate the filter was sized for. Codes are hashed once
+ * into 64 bits, the bit positions are derived from that hash by double hashing. The bits live in an
+ * {@link AtomicLongArray}, so codes can be added while other threads read the filter.
+ */
+public final class CouponCodeFilter {
+
+    // keeps the word index of the bit array within an int
+    private static final long MAX_BITS = 1L << 36;
+
+    private static final int MAX_HASHES = 16;
+
+    private final AtomicLongArray words;
+
+    private final long bitMask;
+
+    private final int hashes;
+
+    private final LongAdder bitsSet = new LongAdder();
+
+    private CouponCodeFilter(final long bits, final int hashes) {
+        this.words = new AtomicLongArray((int) (bits >>> 6));
+        this.bitMask = bits - 1;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Creates an empty filter sized for the given number of codes.
+     *
+     * @param expectedCodes Number of codes the filter should hold at the given false positive rate.
+     * @param falsePositiveRate The targeted false positive rate, between 0 and 1 exclusive.
+     * @return The empty filter, its bit count is rounded up to a power of two.
+     */
+    public static CouponCodeFilter create(final long expectedCodes, final double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1, was " + falsePositiveRate);
+        }
+        final long codes = Math.max(1, expectedCodes);
+        final double optimalBits = -codes * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        final long bits = Math.min(MAX_BITS, Math.max(64, Long.highestOneBit((long) Math.ceil(optimalBits) - 1) << 1));
+        final int hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round((double) bits / codes * Math.log(2))));
+        return new CouponCodeFilter(bits, hashes);
+    }
+
+    /**
+     * @param normalizedCode A normalized coupon code.
+     * @return false if the code was definitely never added, true if it may have been.
+     */
+    public boolean mightContain(final String normalizedCode) {
+        final long hash = hash(normalizedCode);
+        final long step = step(hash);
+        for (int i = 0; i < hashes; i++) {
+            final long bit = (hash + i * step) & bitMask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param normalizedCode A normalized coupon code.
+     */
+    public void add(final String normalizedCode) {
+        final long hash = hash(normalizedCode);
+        final long step = step(hash);
+        for (int i = 0; i < hashes; i++) {
+            final long bit = (hash + i * step) & bitMask;
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0) {
+                if (words.compareAndSet(word, current, current | mask)) {
+                    bitsSet.increment();
+                    break;
+                }
+                current = words.get(word);
+            }
+        }
+    }
+
+    /**
+     * @return Number of bits of the filter.
+     */
+    public long bits() {
+        return bitMask + 1;
+    }
+
+    /**
+     * @return Number of bit positions per code.
+     */
+    public int hashes() {
+        return hashes;
+    }
+
+    /**
+     * @return The false positive rate to expect for unknown codes, given how many bits are set by now.
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) bitsSet.sum() / bits(), hashes);
+    }
+
+    /**
+     * @return Number of distinct codes added so far, estimated from the bits set.
+     */
+    public long approximateSize() {
+        final double fill = (double) bitsSet.sum() / bits();
+        return Math.round(-((double) bits() / hashes) * Math.log1p(-Math.min(fill, 1 - 1e-9)));
+    }
+
+    // FNV-1a over the chars, finished with the murmur3 mixer so every bit depends on every char
+    private static long hash(final String code) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < code.length(); i++) {
+            hash = (hash ^ code.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    // odd, so the probe sequence visits distinct bits of the power-of-two sized array
+    private static long step(final long hash) {
+        return Long.rotateLeft(hash * 0x9e3779b97f4a7c15L, 32) | 1;
+    }
+}
@@ -0,0 +1,38 @@
+package schwarz.jobs.interview.coupon.core.services.filter;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import lombok.Data;
+
+/**
+ * Settings of the unknown code filter, bound from the {@code coupon.filter} prefix.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "coupon.filter")
+public class CouponCodeFilterProperties {
+
+    /**
+     * Whether the filter is built and used to reject unknown codes before they reach the cache or database.
+     */
+    private boolean enabled;
+
+    /**
+     * Targeted share of unknown codes that still pass the filter.
+     */
+    @DecimalMin(value = "0", inclusive = false)
+    @DecimalMax(value = "1", inclusive = false)
+    private double falsePositiveRate = 0.01;
+
+    /**
+     * Minimum number of codes the filter is sized for. Each rebuild sizes it for twice the catalogue at
+     * least, so the codes created until the next rebuild don't push it past its false positive rate.
+     */
+    @Min(1)
+    private long expectedCodes = 1_000_000;
+}
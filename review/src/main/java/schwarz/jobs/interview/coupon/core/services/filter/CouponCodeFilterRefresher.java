@@ -0,0 +1,101 @@
+package schwarz.jobs.interview.coupon.core.services.filter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
+import schwarz.jobs.interview.coupon.core.repository.CouponExportRepository;
+import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+
+/**
+ * Builds the {@link CouponCodeFilterStore} filter when {@code coupon.filter.enabled} is set.
+ * <p>
+ * The first run builds the filter from all codes in the database. Codes created by this instance are added
+ * as they are created, codes created by other instances are picked up by the incremental refresh, which
+ * reads the coupons updated since the last run. The periodic rebuild drops deleted codes and resizes the
+ * filter to the grown catalogue. A failing run keeps serving the previous filter.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "coupon.filter.enabled", havingValue = "true")
+public class CouponCodeFilterRefresher {
+
+    // same as for the snapshot, late committing transactions can carry a slightly older update time
+    private static final Duration OVERLAP = Duration.ofSeconds(5);
+
+    private final CouponCodeFilterStore couponCodeFilterStore;
+
+    private final CouponRepository couponRepository;
+
+    private final CouponShards couponShards;
+
+    private final CouponExportRepository couponExportRepository;
+
+    private final CouponCodeFilterProperties properties;
+
+    private final Clock clock;
+
+    private Instant refreshedSince;
+
+    @Scheduled(fixedDelayString = "${coupon.filter.refresh-interval-ms:10000}")
+    public synchronized void refresh() {
+        try {
+            if (!couponCodeFilterStore.isReady()) {
+                rebuild();
+            } else {
+                addChanges();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Refreshing the coupon code filter failed", e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${coupon.filter.rebuild-interval-ms:3600000}",
+               fixedDelayString = "${coupon.filter.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        final long started = System.nanoTime();
+        final Instant readAt = clock.instant();
+        final long capacity = Math.max(properties.getExpectedCodes(), countCoupons() * 2);
+        final CouponCodeFilter next = CouponCodeFilter.create(capacity, properties.getFalsePositiveRate());
+
+        couponCodeFilterStore.beginRebuild(next);
+        try (Stream<String> codes = couponExportRepository.streamCodes()) {
+            codes.forEach(next::add);
+        } catch (RuntimeException e) {
+            couponCodeFilterStore.abortRebuild();
+            throw e;
+        }
+        couponCodeFilterStore.publishRebuild();
+        refreshedSince = readAt.minus(OVERLAP);
+
+        log.info("Built coupon code filter with {} codes, {} bits and {} hashes in {} ms",
+            next.approximateSize(), next.bits(), next.hashes(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private long countCoupons() {
+        return couponShards.onEachShard(couponRepository::count).stream().mapToLong(Long::longValue).sum();
+    }
+
+    private void addChanges() {
+        final Instant readAt = clock.instant();
+        long added = 0;
+        try (Stream<CouponView> rows = couponExportRepository.streamChangedSince(refreshedSince)) {
+            for (CouponView row : (Iterable<CouponView>) rows::iterator) {
+                couponCodeFilterStore.add(row.getCode());
+                added++;
+            }
+        }
+        refreshedSince = readAt.minus(OVERLAP);
+        log.debug("Added {} changed codes to the coupon code filter", added);
+    }
+}
@@ -0,0 +1,124 @@
+package schwarz.jobs.interview.coupon.core.services.filter;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import schwarz.jobs.interview.coupon.core.domain.CouponCodes;
+
+/**
+ * Publishes the current {@link CouponCodeFilter} to the lookup path.
+ * <p>
+ * Until the first filter is built, or when the filter is disabled, every code passes. Codes are added
+ * before the coupon is persisted, so a committed coupon is never rejected. While a rebuild scans the
+ * database, added codes go into both the served and the new filter, so the swap loses none of them.
+ */
+@Component
+public class CouponCodeFilterStore implements MeterBinder {
+
+    private volatile CouponCodeFilter filter;
+
+    // guarded by this
+    private CouponCodeFilter building;
+
+    private Counter rejected;
+
+    private Counter falsePositives;
+
+    /**
+     * @param code The coupon code.
+     * @return false if no coupon with the code exists, true if one may exist.
+     */
+    public boolean mightContain(final String code) {
+        final CouponCodeFilter current = filter;
+        return current == null || current.mightContain(CouponCodes.normalize(code));
+    }
+
+    /**
+     * Adds the code of a coupon that is about to be persisted.
+     *
+     * @param code The coupon code.
+     */
+    public synchronized void add(final String code) {
+        final String key = CouponCodes.normalize(code);
+        if (filter != null) {
+            filter.add(key);
+        }
+        if (building != null) {
+            building.add(key);
+        }
+    }
+
+    /**
+     * Records a lookup the filter rejected.
+     */
+    public void recordRejected() {
+        if (rejected != null) {
+            rejected.increment();
+        }
+    }
+
+    /**
+     * Records a code that passed the filter but doesn't exist, the counter measures the actual false positives.
+     */
+    public void recordFalsePositive() {
+        if (filter != null && falsePositives != null) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * @return Whether a filter is built and rejects codes.
+     */
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    /**
+     * Starts a rebuild, codes added from now on also go into the new filter. Only called by the refresher.
+     */
+    synchronized void beginRebuild(final CouponCodeFilter next) {
+        building = next;
+    }
+
+    /**
+     * Serves the filter of the running rebuild from now on.
+     */
+    synchronized void publishRebuild() {
+        filter = building;
+        building = null;
+    }
+
+    /**
+     * Drops a failed rebuild and keeps serving the previous filter.
+     */
+    synchronized void abortRebuild() {
+        building = null;
+    }
+
+    /**
+     * Publishes the filter size, its expected false positive rate and the rejected and falsely passed codes.
+     * The observed false positive rate is false-positives / (rejected + false-positives).
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("coupon.filter.size", this, store -> store.filter == null ? Double.NaN : store.filter.approximateSize())
+            .description("Approximate number of codes in the unknown code filter")
+            .register(registry);
+        Gauge.builder("coupon.filter.bits", this, store -> store.filter == null ? Double.NaN : store.filter.bits())
+            .description("Size of the unknown code filter in bits")
+            .register(registry);
+        Gauge.builder("coupon.filter.false-positive-rate", this,
+                store -> store.filter == null ? Double.NaN : store.filter.expectedFalsePositiveRate())
+            .description("Expected share of unknown codes passing the filter, given its current fill")
+            .register(registry);
+        rejected = Counter.builder("coupon.filter.rejected")
+            .description("Lookups of unknown codes rejected by the filter")
+            .register(registry);
+        falsePositives = Counter.builder("coupon.filter.false-positives")
+            .description("Lookups of unknown codes that passed the filter")
+            .register(registry);
+    }
+}
@@ -0,0 +1,32 @@
+package schwarz.jobs.interview.coupon.core.services.idempotency;
+
+import java.time.Duration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import lombok.Data;
+
+/**
+ * Settings of the idempotency result store, bound from the {@code coupon.idempotency} prefix.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "coupon.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Maximum number of remembered results, the oldest keys are evicted first.
+     */
+    @Min(0)
+    private long maximumSize = 100_000;
+
+    /**
+     * How long a result is replayed for retries with the same key, should cover the clients' retry window.
+     */
+    @NotNull
+    private Duration ttl = Duration.ofMinutes(10);
+}
@@ -0,0 +1,83 @@
+package schwarz.jobs.interview.coupon.core.services.idempotency;
+
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+import schwarz.jobs.interview.coupon.core.services.exception.IdempotencyKeyReuseException;
+
+/**
+ * Bounded, expiring store of results keyed by the client's idempotency key.
+ * <p>
+ * The first request with a key runs the action, every retry with the same key replays its result with a
+ * single hash lookup, including retries that arrive while the first request is still running: they share
+ * its execution instead of starting another one. Only successful results are kept, a failed execution is
+ * forgotten so the next retry runs again.
+ */
+@Component
+public class IdempotencyStore implements MeterBinder {
+
+    private final Cache<String, Entry> entries;
+
+    public IdempotencyStore(final IdempotencyProperties properties) {
+        this.entries = Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getTtl())
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Runs the action once per key and replays its result for later calls with the same key.
+     *
+     * @param key The idempotency key sent by the client.
+     * @param fingerprint Identifies the request, a key must not be reused for a request with a different fingerprint.
+     * @param action Produces the result, only subscribed for the first call with a key.
+     * @return The result of the first call with the key, or an {@link IdempotencyKeyReuseException}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> execute(final String key, final Object fingerprint, final Supplier<Mono<T>> action) {
+        return Mono.defer(() -> {
+            final Entry created = new Entry(fingerprint);
+            // cache() keeps running after a subscriber cancels, so a client timing out still leaves the result for its retry
+            created.result = Mono.defer(action).doOnError(e -> entries.asMap().remove(key, created)).cache();
+
+            final Entry existing = entries.get(key, k -> created);
+            if (existing == created) {
+                return (Mono<T>) created.result;
+            }
+            if (!existing.fingerprint.equals(fingerprint)) {
+                return Mono.error(new IdempotencyKeyReuseException(key));
+            }
+            return (Mono<T>) existing.result;
+        });
+    }
+
+    /**
+     * Publishes the store as {@code cache.*} metrics tagged {@code cache=idempotency}, the hit count is the
+     * number of replayed retries.
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, entries, "idempotency");
+    }
+
+    private static final class Entry {
+
+        final Object fingerprint;
+
+        // assigned before the entry is published through the map
+        Mono<?> result;
+
+        Entry(final Object fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package schwarz.jobs.interview.coupon.core.services.importer;
+
+import jakarta.validation.constraints.Min;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import lombok.Data;
+
+/**
+ * Settings of the bulk coupon import, bound from the {@code coupon.import} prefix.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "coupon.import")
+public class CouponImportProperties {
+
+    /**
+     * Number of coupons inserted per transaction, should match {@code hibernate.jdbc.batch_size}.
+     */
+    @Min(1)
+    private int batchSize = 500;
+
+    /**
+     * Maximum number of row errors listed in the import report.
+     */
+    @Min(0)
+    private int maxReportedErrors = 1000;
+
+    /**
+     * Number of rows after which the import logs its progress.
+     */
+    @Min(1)
+    private long progressInterval = 100_000;
+}
@@ -0,0 +1,47 @@
+package schwarz.jobs.interview.coupon.core.services.importer;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Command line import of a coupon file at startup, e.g.
+ * {@code java -jar coupon.jar --coupon.import.file=campaign.csv --spring.main.web-application-type=none}.
+ * The format is taken from the file extension.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty("coupon.import.file")
+public class CouponImportRunner implements ApplicationRunner {
+
+    private final CouponImportService couponImportService;
+
+    @Value("${coupon.import.file}")
+    private Path file;
+
+    @Override
+    public void run(final ApplicationArguments args) throws Exception {
+        log.info("Importing coupons from {}", file);
+
+        final ImportReport report;
+        try (InputStream input = Files.newInputStream(file)) {
+            report = couponImportService.importCoupons(input, ImportFormat.fromFileName(file.getFileName().toString()));
+        }
+
+        report.getErrors().forEach(error ->
+            log.warn("Line {} ({}) rejected: {}", error.getLine(), error.getCode(), error.getMessage()));
+        if (report.isErrorsTruncated()) {
+            log.warn("Only the first {} of {} rejected rows are listed", report.getErrors().size(), report.getRejected());
+        }
+    }
+}
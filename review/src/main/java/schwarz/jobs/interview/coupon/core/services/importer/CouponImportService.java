@@ -0,0 +1,221 @@
+package schwarz.jobs.interview.coupon.core.services.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+import schwarz.jobs.interview.coupon.core.services.filter.CouponCodeFilterStore;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+
+/**
+ * Bulk import of coupons from NDJSON or CSV files of arbitrary size.
+ * <p>
+ * The input is read one line at a time and rows are inserted in batches of
+ * {@link CouponImportProperties#getBatchSize()}, each batch in its own transaction, so neither the
+ * file nor the persistence context ever holds more than one batch. Rows are validated with the same
+ * constraints as {@link CouponDTO} on {@code /create}; invalid rows are reported and skipped instead of
+ * failing the whole import. CSV rows must not contain line breaks inside quoted values.
+ */
+@Service
+@Slf4j
+public class CouponImportService {
+
+    // spreadsheet tools like to start UTF-8 exports with it, it must not end up in the first column name
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+    private final CouponRepository couponRepository;
+
+    private final CouponShards couponShards;
+
+    private final CouponCodeFilterStore couponCodeFilterStore;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Validator validator;
+
+    private final CouponImportProperties properties;
+
+    private final ObjectReader jsonReader;
+
+    private final CsvMapper csvMapper;
+
+    public CouponImportService(final CouponRepository couponRepository, final CouponShards couponShards,
+                               final CouponCodeFilterStore couponCodeFilterStore,
+                               final TransactionTemplate transactionTemplate, final Validator validator,
+                               final CouponImportProperties properties, final ObjectMapper objectMapper) {
+        this.couponRepository = couponRepository;
+        this.couponShards = couponShards;
+        this.couponCodeFilterStore = couponCodeFilterStore;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.properties = properties;
+        this.jsonReader = objectMapper.readerFor(CouponDTO.class);
+        this.csvMapper = CsvMapper.builder()
+            .addModule(new JavaTimeModule())
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            // spreadsheet exports often carry extra columns, same as unknown JSON properties they are ignored
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    }
+
+    /**
+     * Imports all rows of the given input. The input is consumed but not closed.
+     *
+     * @param input  The file content, UTF-8 encoded.
+     * @param format The format of the content.
+     * @return The report with the number of imported and rejected rows.
+     * @throws IOException              If reading the input fails.
+     * @throws IllegalArgumentException If a CSV file has no header line.
+     */
+    public ImportReport importCoupons(final InputStream input, final ImportFormat format) throws IOException {
+        final ImportReport report = new ImportReport(properties.getMaxReportedErrors());
+        final List<PendingRow> batch = new ArrayList<>(properties.getBatchSize());
+        final long started = System.nanoTime();
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        ObjectReader rowReader = jsonReader;
+        if (format == ImportFormat.CSV) {
+            rowReader = csvReader(reader.readLine());
+            lineNumber++;
+        }
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            report.rowRead();
+
+            final CouponDTO row = parse(rowReader, line, lineNumber, report);
+            if (row != null && isValid(row, lineNumber, report)) {
+                batch.add(new PendingRow(lineNumber, row));
+                if (batch.size() >= properties.getBatchSize()) {
+                    insert(batch, report);
+                    batch.clear();
+                }
+            }
+
+            if (report.getRowsRead() % properties.getProgressInterval() == 0) {
+                log.info("Import progress: {} rows read, {} imported, {} rejected",
+                    report.getRowsRead(), report.getImported(), report.getRejected());
+            }
+        }
+        insert(batch, report);
+
+        log.info("Import finished in {} ms: {} rows read, {} imported, {} rejected",
+            (System.nanoTime() - started) / 1_000_000, report.getRowsRead(), report.getImported(), report.getRejected());
+        return report;
+    }
+
+    private ObjectReader csvReader(final String header) {
+        if (header == null || header.isBlank()) {
+            throw new IllegalArgumentException("CSV import requires a header line");
+        }
+        // column names are field names and never contain commas, a plain split is enough
+        final CsvSchema.Builder schema = CsvSchema.builder();
+        for (String column : header.replace(BYTE_ORDER_MARK, "").split(",")) {
+            schema.addColumn(unquote(column.trim()));
+        }
+        return csvMapper.readerFor(CouponDTO.class).with(schema.build());
+    }
+
+    private static String unquote(final String column) {
+        if (column.length() >= 2 && column.startsWith("\"") && column.endsWith("\"")) {
+            return column.substring(1, column.length() - 1).trim();
+        }
+        return column;
+    }
+
+    private CouponDTO parse(final ObjectReader rowReader, final String line, final long lineNumber,
+                            final ImportReport report) throws IOException {
+        try {
+            return rowReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            report.reject(lineNumber, null, "Malformed row: " + e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    private boolean isValid(final CouponDTO row, final long lineNumber, final ImportReport report) {
+        final Set<ConstraintViolation<CouponDTO>> violations = validator.validate(row);
+        if (violations.isEmpty()) {
+            return true;
+        }
+        report.reject(lineNumber, row.getCode(), violations.stream()
+            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", ")));
+        return false;
+    }
+
+    private void insert(final List<PendingRow> batch, final ImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // before the commit, rows that fail afterwards only cost a false positive
+        batch.forEach(row -> couponCodeFilterStore.add(row.getCoupon().getCode()));
+        couponShards.forEachShardGroup(batch, row -> row.getCoupon().getCode(), group -> insertShardGroup(group, report));
+    }
+
+    private void insertShardGroup(final List<PendingRow> batch, final ImportReport report) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> couponRepository.saveAll(
+                batch.stream().map(row -> row.getCoupon().toCoupon()).collect(Collectors.toList())));
+            report.imported(batch.size());
+        } catch (DataIntegrityViolationException | ConstraintViolationException e) {
+            // one bad row (usually a duplicate code) rolls back its whole batch, retry row by row to find it
+            log.debug("Batch ending at line {} failed, retrying row by row", batch.get(batch.size() - 1).getLine(), e);
+            batch.forEach(row -> insertSingle(row, report));
+        }
+    }
+
+    private void insertSingle(final PendingRow row, final ImportReport report) {
+        try {
+            // a fresh entity, the one of the failed batch already got an id assigned
+            transactionTemplate.executeWithoutResult(status -> couponRepository.save(row.getCoupon().toCoupon()));
+            report.imported(1);
+        } catch (DataIntegrityViolationException e) {
+            report.reject(row.getLine(), row.getCoupon().getCode(), "Coupon code already exists");
+        } catch (ConstraintViolationException e) {
+            report.reject(row.getLine(), row.getCoupon().getCode(), e.getMessage());
+        }
+    }
+
+    @Value
+    private static class PendingRow {
+
+        long line;
+
+        CouponDTO coupon;
+    }
+}
@@ -0,0 +1,54 @@
+package schwarz.jobs.interview.coupon.core.services.importer;
+
+import java.util.Locale;
+
+import org.springframework.http.MediaType;
+
+/**
+ * File formats accepted by the coupon import, both read one row per line.
+ */
+public enum ImportFormat {
+
+    /**
+     * One JSON object per line with the fields of {@code CouponDTO}.
+     */
+    NDJSON,
+
+    /**
+     * Comma separated values with a header line naming the fields of {@code CouponDTO}.
+     */
+    CSV;
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    /**
+     * @param mediaType The content type of an upload.
+     * @return The matching format.
+     * @throws IllegalArgumentException If the content type is neither NDJSON nor CSV.
+     */
+    public static ImportFormat fromMediaType(final MediaType mediaType) {
+        if (mediaType != null && mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+            return NDJSON;
+        }
+        if (mediaType != null && mediaType.isCompatibleWith(TEXT_CSV)) {
+            return CSV;
+        }
+        throw new IllegalArgumentException("Unsupported import content type: " + mediaType);
+    }
+
+    /**
+     * @param fileName The name of an import file.
+     * @return The format matching the file extension.
+     * @throws IllegalArgumentException If the extension is neither .ndjson, .jsonl nor .csv.
+     */
+    public static ImportFormat fromFileName(final String fileName) {
+        final String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        throw new IllegalArgumentException("Unsupported import file: " + fileName);
+    }
+}
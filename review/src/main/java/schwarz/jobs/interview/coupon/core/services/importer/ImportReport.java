@@ -0,0 +1,49 @@
+package schwarz.jobs.interview.coupon.core.services.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Outcome of an import. Only the first {@code maxReportedErrors} row errors are kept, so the report stays
+ * small no matter how broken a file is; {@link #isErrorsTruncated()} tells whether some were dropped.
+ */
+@Getter
+public class ImportReport {
+
+    private long rowsRead;
+
+    private long imported;
+
+    private long rejected;
+
+    private final List<ImportRowError> errors = new ArrayList<>();
+
+    private boolean errorsTruncated;
+
+    @Getter(AccessLevel.NONE)
+    private final int maxReportedErrors;
+
+    ImportReport(final int maxReportedErrors) {
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    void rowRead() {
+        rowsRead++;
+    }
+
+    void imported(final long rows) {
+        imported += rows;
+    }
+
+    void reject(final long line, final String code, final String message) {
+        rejected++;
+        if (errors.size() < maxReportedErrors) {
+            errors.add(new ImportRowError(line, code, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package schwarz.jobs.interview.coupon.core.services.importer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A row of an import file that was not imported.
+ */
+@Data
+@AllArgsConstructor
+public class ImportRowError {
+
+    /**
+     * The 1-based line number of the row in the file.
+     */
+    private long line;
+
+    /**
+     * The coupon code of the row, if it could be read.
+     */
+    private String code;
+
+    private String message;
+}
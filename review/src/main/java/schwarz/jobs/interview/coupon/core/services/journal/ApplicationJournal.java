@@ -0,0 +1,234 @@
+package schwarz.jobs.interview.coupon.core.services.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationStatus;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+
+/**
+ * Append-only audit journal of coupon applications, enabled with {@code coupon.journal.enabled}.
+ * <p>
+ * {@link #record(String, Basket, ApplicationStatus)} only copies a few references into a lock-free ring, the
+ * apply path never waits for I/O. A single writer thread drains the ring into memory-mapped segment files of
+ * fixed-size records, see {@link JournalSegment} for the layout, starts a new segment when one is full and
+ * forces the written records to disk every {@link JournalProperties#getFlushInterval()}.
+ * <p>
+ * The journal is best effort by design: if the writer falls behind by more than the ring capacity, further
+ * applications are not journaled and counted in {@code coupon.journal.dropped}. Records are in the page cache
+ * as soon as they are written, so they survive a crash of the process, a crash of the machine loses at most
+ * the last flush interval. On startup the last segment is scanned and appending continues after its last
+ * complete record.
+ * <p>
+ * When disabled, recording does nothing and {@link #replay(long, Consumer)} still reads an existing journal.
+ */
+@Component
+@Slf4j
+public class ApplicationJournal implements MeterBinder {
+
+    private static final int DRAIN_BATCH = 1024;
+
+    private static final long IDLE_PARK_NANOS = 100_000;
+
+    private final Clock clock;
+
+    private final Path directory;
+
+    private final long segmentBytes;
+
+    private final long flushIntervalNanos;
+
+    // null when the journal is disabled
+    private final RecordRing ring;
+
+    private final Thread writer;
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running;
+
+    // only touched by the writer thread, and by close() after it has stopped
+    private JournalSegment segment;
+
+    public ApplicationJournal(final JournalProperties properties, final Clock clock) {
+        this.clock = clock;
+        this.directory = Paths.get(properties.getDirectory());
+        this.segmentBytes = properties.getSegmentSize().toBytes();
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+
+        if (!properties.isEnabled()) {
+            this.ring = null;
+            this.writer = null;
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+            this.segment = openLastSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the application journal in " + directory.toAbsolutePath(), e);
+        }
+        log.info("Application journal in {} continues at sequence {}", directory.toAbsolutePath(), segment.nextSequence());
+
+        this.ring = new RecordRing(properties.getRingCapacity());
+        this.running = true;
+        this.writer = Thread.ofPlatform().name("coupon-journal").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * @return A journal that records nothing, e.g. for tests and benchmarks.
+     */
+    public static ApplicationJournal disabled() {
+        return new ApplicationJournal(new JournalProperties(), Clock.systemUTC());
+    }
+
+    /**
+     * Queues the outcome of one coupon application. Never blocks, the outcome is dropped if the ring is full.
+     *
+     * @param code The coupon code as submitted, for stacked applications all codes joined with commas.
+     * @param basket The basket after the application.
+     * @param status The outcome of the application.
+     */
+    public void record(final String code, final Basket basket, final ApplicationStatus status) {
+        if (ring == null) {
+            return;
+        }
+        if (!ring.offer(clock.millis(), code, basket.getValue(), basket.getAppliedDiscount(), status, basket.getRejectionReason())) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Reads the journal in sequence order, including the records the writer appends while it runs.
+     *
+     * @param fromSequence The sequence of the first record to replay, earlier records are skipped.
+     * @param consumer Receives the records, on the calling thread.
+     * @return The number of records replayed.
+     * @throws UncheckedIOException If a segment can't be read.
+     */
+    public long replay(final long fromSequence, final Consumer<JournalRecord> consumer) {
+        try {
+            final List<Path> segments = segments();
+            int first = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                if (JournalSegment.firstSequenceOf(segments.get(i)) <= fromSequence) {
+                    first = i;
+                }
+            }
+
+            long replayed = 0;
+            for (int i = first; i < segments.size(); i++) {
+                replayed += JournalSegment.read(segments.get(i), fromSequence, consumer);
+            }
+            return replayed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay the application journal in " + directory.toAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Writes everything recorded so far and closes the current segment.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join();
+        segment.close();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("coupon.journal.written", written, LongAdder::sum)
+            .description("Coupon applications written to the journal")
+            .register(registry);
+        FunctionCounter.builder("coupon.journal.dropped", dropped, LongAdder::sum)
+            .description("Coupon applications not journaled because the writer fell behind or failed")
+            .register(registry);
+        Gauge.builder("coupon.journal.backlog", this, journal -> journal.ring == null ? 0 : journal.ring.size())
+            .description("Coupon applications waiting for the journal writer")
+            .register(registry);
+    }
+
+    private void writeLoop() {
+        long lastForce = System.nanoTime();
+        while (running || ring.size() > 0) {
+            final int drained = ring.drain(this::append, DRAIN_BATCH);
+            final long now = System.nanoTime();
+            if (now - lastForce >= flushIntervalNanos) {
+                segment.force();
+                lastForce = now;
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void append(final long timestamp, final String code, final BigDecimal basketValue, final BigDecimal discount,
+                        final ApplicationStatus status, final RejectionReason rejectionReason) {
+        try {
+            if (segment.isFull()) {
+                roll();
+            }
+            segment.append(timestamp, code, basketValue, discount, status, rejectionReason);
+            written.increment();
+        } catch (IOException | RuntimeException e) {
+            // the apply has already happened, losing its audit record must not stop the journal
+            dropped.increment();
+            log.error("Failed to journal the application of code {}", code, e);
+        }
+    }
+
+    private void roll() throws IOException {
+        final long nextSequence = segment.nextSequence();
+        segment.close();
+        segment = JournalSegment.create(directory, nextSequence, segmentBytes);
+        log.debug("Started journal segment at sequence {}", nextSequence);
+    }
+
+    private JournalSegment openLastSegment() throws IOException {
+        final List<Path> segments = segments();
+        if (segments.isEmpty()) {
+            return JournalSegment.create(directory, 1, segmentBytes);
+        }
+        return JournalSegment.recover(segments.get(segments.size() - 1));
+    }
+
+    private List<Path> segments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> JournalSegment.firstSequenceOf(file) >= 0)
+                .sorted(Comparator.comparingLong(JournalSegment::firstSequenceOf))
+                .collect(Collectors.toList());
+        }
+    }
+}
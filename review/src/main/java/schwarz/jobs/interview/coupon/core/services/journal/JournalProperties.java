@@ -0,0 +1,53 @@
+package schwarz.jobs.interview.coupon.core.services.journal;
+
+import java.time.Duration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import lombok.Data;
+
+/**
+ * Settings of the application journal, bound from the {@code coupon.journal} prefix.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "coupon.journal")
+public class JournalProperties {
+
+    /**
+     * Whether every coupon application is appended to the journal.
+     */
+    private boolean enabled;
+
+    /**
+     * Directory of the segment files, created if missing.
+     */
+    @NotBlank
+    private String directory = "journal";
+
+    /**
+     * Size of one segment file, a full segment is closed and the next one started.
+     */
+    @NotNull
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Records buffered between the apply path and the writer, rounded up to a power of two. Applications
+     * arriving while it is full are not journaled and counted as dropped.
+     */
+    @Min(2)
+    private int ringCapacity = 65_536;
+
+    /**
+     * How often written records are forced to disk. A process crash loses nothing already written, a crash
+     * of the machine at most this much.
+     */
+    @NotNull
+    private Duration flushInterval = Duration.ofMillis(100);
+}
@@ -0,0 +1,45 @@
+package schwarz.jobs.interview.coupon.core.services.journal;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Value;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationStatus;
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+
+/**
+ * One coupon application read back from the journal.
+ */
+@Value
+@Builder
+public class JournalRecord {
+
+    /**
+     * Position of the record in the journal, consecutive across segments.
+     */
+    long sequence;
+
+    Instant timestamp;
+
+    /**
+     * The code as it was submitted, or its first bytes if {@link #isCodeTruncated()}.
+     */
+    String code;
+
+    boolean codeTruncated;
+
+    /**
+     * The basket value, rounded down to minor units, null if it didn't fit into the record.
+     */
+    BigDecimal basketValue;
+
+    BigDecimal discount;
+
+    ApplicationStatus status;
+
+    /**
+     * Why the coupon was not applied, null if it was applied or the basket was invalid.
+     */
+    RejectionReason rejectionReason;
+}
@@ -0,0 +1,284 @@
+package schwarz.jobs.interview.coupon.core.services.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationStatus;
+import schwarz.jobs.interview.coupon.core.services.model.Money;
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+
+/**
+ * One memory-mapped, preallocated segment file of the journal, named after the sequence of its first record.
+ * <p>
+ * Records have a fixed layout of {@value #RECORD_SIZE} bytes, little endian:
+ * <pre>
+ *   0  int    CRC32C of bytes 4 to 127
+ *   4  long   sequence
+ *  12  long   timestamp, epoch millis
+ *  20  long   basket value, minor units rounded down
+ *  28  long   discount, minor units
+ *  36  byte   status ordinal
+ *  37  byte   rejection reason ordinal + 1, 0 for none
+ *  38  byte   flags, see FLAG_*
+ *  39  byte   length of the code in bytes
+ *  40  88     code, UTF-8
+ * </pre>
+ * Enum ordinals are stored, so new statuses and reasons may only be added at the end.
+ * <p>
+ * A record is valid if its checksum matches and its sequence is the one expected at its position. The file is
+ * zero filled beyond the last record, so after a crash the valid records are exactly the prefix up to the
+ * first invalid one, a torn record included.
+ */
+final class JournalSegment implements Closeable {
+
+    static final int RECORD_SIZE = 128;
+
+    static final int CODE_BYTES = 88;
+
+    private static final int SEQUENCE = 4;
+
+    private static final int TIMESTAMP = 12;
+
+    private static final int BASKET_VALUE = 20;
+
+    private static final int DISCOUNT = 28;
+
+    private static final int STATUS = 36;
+
+    private static final int REJECTION_REASON = 37;
+
+    private static final int FLAGS = 38;
+
+    private static final int CODE_LENGTH = 39;
+
+    private static final int CODE = 40;
+
+    private static final int FLAG_CODE_TRUNCATED = 1;
+
+    private static final int FLAG_VALUE_OUT_OF_RANGE = 2;
+
+    private static final Pattern FILE_NAME = Pattern.compile("applications-(\\d{20})\\.journal");
+
+    private static final ApplicationStatus[] STATUSES = ApplicationStatus.values();
+
+    private static final RejectionReason[] REJECTION_REASONS = RejectionReason.values();
+
+    private final long firstSequence;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final int capacity;
+
+    private final CRC32C checksum = new CRC32C();
+
+    // the fields below are only touched by the journal writer thread
+    private int count;
+
+    private int forced;
+
+    private JournalSegment(final long firstSequence, final FileChannel channel, final int capacity) throws IOException {
+        this.firstSequence = firstSequence;
+        this.channel = channel;
+        this.capacity = capacity;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Creates and maps a new, zero filled segment.
+     *
+     * @param directory The journal directory.
+     * @param firstSequence The sequence of the first record of the segment.
+     * @param segmentBytes The requested file size, rounded down to whole records.
+     */
+    static JournalSegment create(final Path directory, final long firstSequence, final long segmentBytes) throws IOException {
+        final int capacity = (int) Math.min(Integer.MAX_VALUE / RECORD_SIZE, Math.max(1, segmentBytes / RECORD_SIZE));
+        final FileChannel channel = FileChannel.open(directory.resolve(fileName(firstSequence)),
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new JournalSegment(firstSequence, channel, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps an existing segment for appending after its last valid record. Whatever follows that record,
+     * usually a torn write, is zeroed, so a later crash can't revive it.
+     *
+     * @param file The segment file.
+     */
+    static JournalSegment recover(final Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final JournalSegment segment = new JournalSegment(firstSequenceOf(file), channel, (int) (channel.size() / RECORD_SIZE));
+            while (segment.count < segment.capacity && segment.isValid(segment.count)) {
+                segment.count++;
+            }
+            final int end = segment.capacity * RECORD_SIZE;
+            for (int position = segment.count * RECORD_SIZE; position < end; position += Long.BYTES) {
+                segment.buffer.putLong(position, 0L);
+            }
+            segment.buffer.force();
+            segment.forced = segment.count * RECORD_SIZE;
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands the valid records of a segment file with a sequence of at least {@code fromSequence} to the consumer,
+     * in order. The file is only read, records a writer appends concurrently are seen or not, but never torn.
+     *
+     * @return The number of records handed to the consumer.
+     */
+    static long read(final Path file, final long fromSequence, final Consumer<JournalRecord> consumer) throws IOException {
+        final long firstSequence = firstSequenceOf(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            final CRC32C checksum = new CRC32C();
+            final int capacity = (int) (channel.size() / RECORD_SIZE);
+
+            long read = 0;
+            for (int index = (int) Math.max(0, Math.min(capacity, fromSequence - firstSequence)); index < capacity; index++) {
+                if (!isValid(buffer, checksum, index, firstSequence + index)) {
+                    break;
+                }
+                consumer.accept(decode(buffer, index * RECORD_SIZE));
+                read++;
+            }
+            return read;
+        }
+    }
+
+    static String fileName(final long firstSequence) {
+        return String.format("applications-%020d.journal", firstSequence);
+    }
+
+    /**
+     * @return The first sequence encoded in the file name, or -1 if the file is not a journal segment.
+     */
+    static long firstSequenceOf(final Path file) {
+        final Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    /**
+     * @return The sequence the next record appended to this segment gets.
+     */
+    long nextSequence() {
+        return firstSequence + count;
+    }
+
+    /**
+     * Appends one record, the segment must not be full.
+     */
+    void append(final long timestamp, final String code, final BigDecimal basketValue, final BigDecimal discount,
+                final ApplicationStatus status, final RejectionReason rejectionReason) {
+        final int offset = count * RECORD_SIZE;
+        int flags = 0;
+
+        long basketMinorUnits = 0;
+        long discountMinorUnits = 0;
+        try {
+            basketMinorUnits = basketValue == null ? 0 : Money.toMinorUnitsFloor(basketValue);
+            discountMinorUnits = discount == null ? 0 : Money.toMinorUnitsFloor(discount);
+        } catch (ArithmeticException e) {
+            flags |= FLAG_VALUE_OUT_OF_RANGE;
+        }
+
+        final byte[] codeBytes = code == null ? new byte[0] : code.getBytes(StandardCharsets.UTF_8);
+        final int codeLength = Math.min(codeBytes.length, CODE_BYTES);
+        if (codeLength < codeBytes.length) {
+            flags |= FLAG_CODE_TRUNCATED;
+        }
+
+        buffer.putLong(offset + SEQUENCE, nextSequence());
+        buffer.putLong(offset + TIMESTAMP, timestamp);
+        buffer.putLong(offset + BASKET_VALUE, basketMinorUnits);
+        buffer.putLong(offset + DISCOUNT, discountMinorUnits);
+        buffer.put(offset + STATUS, (byte) status.ordinal());
+        buffer.put(offset + REJECTION_REASON, (byte) (rejectionReason == null ? 0 : rejectionReason.ordinal() + 1));
+        buffer.put(offset + FLAGS, (byte) flags);
+        buffer.put(offset + CODE_LENGTH, (byte) codeLength);
+        buffer.put(offset + CODE, codeBytes, 0, codeLength);
+        // the checksum goes last, a record torn before it is rejected on recovery
+        buffer.putInt(offset, checksum(buffer, checksum, offset));
+        count++;
+    }
+
+    /**
+     * Writes the records appended since the last call to the storage device.
+     */
+    void force() {
+        final int end = count * RECORD_SIZE;
+        if (end > forced) {
+            buffer.force(forced, end - forced);
+            forced = end;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private boolean isValid(final int index) {
+        return isValid(buffer, checksum, index, firstSequence + index);
+    }
+
+    private static boolean isValid(final MappedByteBuffer buffer, final CRC32C checksum, final int index, final long expectedSequence) {
+        final int offset = index * RECORD_SIZE;
+        return buffer.getLong(offset + SEQUENCE) == expectedSequence
+            && buffer.getInt(offset) == checksum(buffer, checksum, offset);
+    }
+
+    private static int checksum(final MappedByteBuffer buffer, final CRC32C checksum, final int offset) {
+        checksum.reset();
+        checksum.update(buffer.slice(offset + SEQUENCE, RECORD_SIZE - SEQUENCE));
+        return (int) checksum.getValue();
+    }
+
+    private static JournalRecord decode(final MappedByteBuffer buffer, final int offset) {
+        final int flags = buffer.get(offset + FLAGS);
+        final int reason = buffer.get(offset + REJECTION_REASON);
+        final byte[] code = new byte[buffer.get(offset + CODE_LENGTH) & 0xFF];
+        buffer.get(offset + CODE, code);
+        final boolean valueInRange = (flags & FLAG_VALUE_OUT_OF_RANGE) == 0;
+
+        return JournalRecord.builder()
+            .sequence(buffer.getLong(offset + SEQUENCE))
+            .timestamp(Instant.ofEpochMilli(buffer.getLong(offset + TIMESTAMP)))
+            .code(new String(code, StandardCharsets.UTF_8))
+            .codeTruncated((flags & FLAG_CODE_TRUNCATED) != 0)
+            .basketValue(valueInRange ? Money.toBigDecimal(buffer.getLong(offset + BASKET_VALUE)) : null)
+            .discount(valueInRange ? Money.toBigDecimal(buffer.getLong(offset + DISCOUNT)) : null)
+            .status(STATUSES[buffer.get(offset + STATUS)])
+            .rejectionReason(reason == 0 ? null : REJECTION_REASONS[reason - 1])
+            .build();
+    }
+}
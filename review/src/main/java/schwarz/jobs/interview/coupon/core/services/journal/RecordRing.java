@@ -0,0 +1,131 @@
+package schwarz.jobs.interview.coupon.core.services.journal;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationStatus;
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+
+/**
+ * Bounded, lock-free multi-producer single-consumer ring of pending journal records.
+ * <p>
+ * Producers claim a slot with one compare-and-set on the tail and publish it with a volatile write of the
+ * slot's sequence, the consumer takes published slots in order and hands them back the same way. The record
+ * fields live in preallocated parallel arrays, so offering a record allocates nothing.
+ */
+final class RecordRing {
+
+    /**
+     * Receives the fields of a drained record.
+     */
+    interface Sink {
+
+        void accept(long timestamp, String code, BigDecimal basketValue, BigDecimal discount,
+                    ApplicationStatus status, RejectionReason rejectionReason);
+    }
+
+    private final int mask;
+
+    // per slot: position + 1 once published, position + capacity once consumed and free for the next lap
+    private final AtomicLongArray sequences;
+
+    private final long[] timestamps;
+
+    private final String[] codes;
+
+    private final BigDecimal[] basketValues;
+
+    private final BigDecimal[] discounts;
+
+    private final ApplicationStatus[] statuses;
+
+    private final RejectionReason[] rejectionReasons;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    // only advanced by the consumer, volatile for size()
+    private volatile long head;
+
+    RecordRing(final int minimumCapacity) {
+        final int capacity = Integer.highestOneBit(Math.max(2, minimumCapacity) - 1) << 1;
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            sequences.set(slot, slot);
+        }
+        this.timestamps = new long[capacity];
+        this.codes = new String[capacity];
+        this.basketValues = new BigDecimal[capacity];
+        this.discounts = new BigDecimal[capacity];
+        this.statuses = new ApplicationStatus[capacity];
+        this.rejectionReasons = new RejectionReason[capacity];
+    }
+
+    /**
+     * @return false if the ring is full, the record was not added then.
+     */
+    boolean offer(final long timestamp, final String code, final BigDecimal basketValue, final BigDecimal discount,
+                  final ApplicationStatus status, final RejectionReason rejectionReason) {
+        long position = tail.get();
+        int slot;
+        while (true) {
+            slot = (int) (position & mask);
+            final long lap = sequences.get(slot) - position;
+            if (lap == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (lap < 0) {
+                // the consumer hasn't freed this slot since the last lap
+                return false;
+            } else {
+                // another producer claimed it first
+                position = tail.get();
+            }
+        }
+
+        timestamps[slot] = timestamp;
+        codes[slot] = code;
+        basketValues[slot] = basketValue;
+        discounts[slot] = discount;
+        statuses[slot] = status;
+        rejectionReasons[slot] = rejectionReason;
+        sequences.set(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Takes up to {@code max} published records in order. Only called by the single consumer.
+     *
+     * @return The number of records drained.
+     */
+    int drain(final Sink sink, final int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            final int slot = (int) (position & mask);
+            if (sequences.get(slot) != position + 1) {
+                break;
+            }
+            sink.accept(timestamps[slot], codes[slot], basketValues[slot], discounts[slot], statuses[slot], rejectionReasons[slot]);
+            // drop the references, a ring of idle slots must not keep old baskets alive
+            codes[slot] = null;
+            basketValues[slot] = null;
+            discounts[slot] = null;
+            sequences.set(slot, position + mask + 1);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    /**
+     * @return The number of claimed but not yet drained records, approximate while producers are active.
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
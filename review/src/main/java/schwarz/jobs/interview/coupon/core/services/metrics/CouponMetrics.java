@@ -0,0 +1,79 @@
+package schwarz.jobs.interview.coupon.core.services.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationStatus;
+
+/**
+ * Business metrics of the coupon service. Request latencies are recorded by Actuator
+ * ({@code http.server.requests}, {@code spring.data.repository.invocations}), cache ratios by the
+ * {@link schwarz.jobs.interview.coupon.core.services.cache.CouponCache} itself. The time from JVM start to the
+ * first applied coupon tells how quickly a newly started instance becomes useful.
+ */
+@Component
+@Slf4j
+public class CouponMetrics implements MeterBinder {
+
+    private final Map<ApplicationStatus, Counter> applications = new EnumMap<>(ApplicationStatus.class);
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    // 0 until the first coupon was applied
+    private volatile long firstAppliedMillis;
+
+    public CouponMetrics(final MeterRegistry registry) {
+        // counters are resolved once, looking them up in the registry per request costs a tag allocation
+        for (ApplicationStatus status : ApplicationStatus.values()) {
+            applications.put(status, Counter.builder("coupon.apply")
+                .description("Coupon applications by outcome")
+                .tag("outcome", status.name().toLowerCase(Locale.ROOT))
+                .register(registry));
+        }
+    }
+
+    /**
+     * Publishes the time to the first applied coupon as {@code coupon.startup.time-to-first-apply}, NaN until
+     * a coupon was applied.
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("coupon.startup.time-to-first-apply", this, CouponMetrics::timeToFirstApplySeconds)
+            .description("Time from the start of the JVM to the first successfully applied coupon")
+            .baseUnit("seconds")
+            .register(registry);
+    }
+
+    /**
+     * Counts one coupon application with the given outcome.
+     *
+     * @param status The outcome of the application.
+     */
+    public void recordApplication(final ApplicationStatus status) {
+        applications.get(status).increment();
+        if (status == ApplicationStatus.APPLIED && firstAppliedMillis == 0) {
+            recordFirstApplication();
+        }
+    }
+
+    private synchronized void recordFirstApplication() {
+        if (firstAppliedMillis == 0) {
+            firstAppliedMillis = System.currentTimeMillis();
+            log.info("First coupon applied {} ms after the JVM started", firstAppliedMillis - jvmStartMillis);
+        }
+    }
+
+    private double timeToFirstApplySeconds() {
+        final long firstApplied = firstAppliedMillis;
+        return firstApplied == 0 ? Double.NaN : (firstApplied - jvmStartMillis) / 1000.0;
+    }
+}
@@ -0,0 +1,37 @@
+package schwarz.jobs.interview.coupon.core.services.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Result of one item of a batch coupon application.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ApplicationResult {
+
+    /**
+     * Position of the item in the batch request.
+     */
+    private int index;
+
+    /**
+     * The requested coupon code.
+     */
+    private String code;
+
+    private ApplicationStatus status;
+
+    /**
+     * The updated basket, present when the coupon could be evaluated against it.
+     */
+    private Basket basket;
+
+    /**
+     * Describes why the item failed, if it did.
+     */
+    private String message;
+}
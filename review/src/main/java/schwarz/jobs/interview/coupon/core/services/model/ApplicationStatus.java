@@ -0,0 +1,27 @@
+package schwarz.jobs.interview.coupon.core.services.model;
+
+/**
+ * Outcome of applying a coupon to a single basket.
+ */
+public enum ApplicationStatus {
+
+    /**
+     * The coupon discount was applied to the basket.
+     */
+    APPLIED,
+
+    /**
+     * The coupon exists but its discount was not applied, e.g. because the basket is empty.
+     */
+    NOT_APPLIED,
+
+    /**
+     * No coupon exists for the requested code.
+     */
+    UNKNOWN_CODE,
+
+    /**
+     * The basket can't be discounted, e.g. because its value is negative.
+     */
+    INVALID_BASKET
+}
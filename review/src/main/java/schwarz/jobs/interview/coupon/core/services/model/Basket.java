@@ -2,23 +2,43 @@ package schwarz.jobs.interview.coupon.core.services.model;
 
 import java.math.BigDecimal;
 
-import javax.validation.constraints.NotNull;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.NotNull;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Basket {
 
+    /**
+     * Largest accepted basket value, in minor units it still fits into a long, see {@link Money}.
+     */
+    public static final String MAX_VALUE = "9999999999999999.99";
+
     @NotNull
+    @DecimalMax(MAX_VALUE)
     private BigDecimal value;
 
     // to avoid null discounts we need to initialize the field to zero
+    @Builder.Default
     private BigDecimal appliedDiscount = BigDecimal.ZERO;
 
     private boolean applicationSuccessful;
 
+    /**
+     * Why the coupon was not applied, empty when it was applied.
+     */
+    private RejectionReason rejectionReason;
+
     // it's a good practice to use JavaDocs and clarify the purpose of the method
     /**
      * Apply a discount to the basket.
@@ -34,6 +54,18 @@ public class Basket {
 
         this.appliedDiscount = discount;
         this.applicationSuccessful = true; // Mark as successful when discount is applied
+        this.rejectionReason = null;
+    }
+
+    /**
+     * Rejects the coupon for this basket, no discount is applied.
+     *
+     * @param reason why the coupon can't be applied.
+     */
+    public void reject(final RejectionReason reason) {
+        this.appliedDiscount = BigDecimal.ZERO;
+        this.applicationSuccessful = false;
+        this.rejectionReason = reason;
     }
     
     // Review: as I said in the Coupon class, we can use the Lombok Annotations as this class to reduce code
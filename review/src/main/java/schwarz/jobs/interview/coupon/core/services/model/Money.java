@@ -0,0 +1,115 @@
+package schwarz.jobs.interview.coupon.core.services.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point amount of money in minor units (cents), matching the {@code precision = 10, scale = 2}
+ * columns. Used internally on the apply hot path, where comparing and adding {@code long}s avoids the
+ * allocations of {@link BigDecimal} arithmetic. {@link BigDecimal} stays the type of the API and JPA
+ * boundary, both convert losslessly into each other.
+ * <p>
+ * The static methods work on raw minor units, so the hot path doesn't even allocate a {@code Money}.
+ */
+public final class Money implements Comparable<Money> {
+
+    /**
+     * Number of decimal places of the minor units.
+     */
+    public static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    private final long minorUnits;
+
+    private Money(final long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinorUnits(final long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * @param amount The amount, with at most {@value #SCALE} decimal places.
+     * @return The same amount as Money.
+     * @throws ArithmeticException If the amount has more decimal places or doesn't fit into a long.
+     */
+    public static Money of(final BigDecimal amount) {
+        return ofMinorUnits(toMinorUnits(amount));
+    }
+
+    /**
+     * Converts an amount losslessly into minor units.
+     *
+     * @param amount The amount, with at most {@value #SCALE} decimal places.
+     * @return The amount in minor units.
+     * @throws ArithmeticException If the amount has more decimal places or doesn't fit into a long.
+     */
+    public static long toMinorUnits(final BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * Converts an amount into minor units, dropping further decimal places towards negative infinity.
+     * Comparing the result against an amount of scale {@value #SCALE} gives the same result as comparing
+     * the exact amount, e.g. 49.999 is below 50.00 either way.
+     *
+     * @param amount Any amount that fits into a long in minor units.
+     * @return The amount in minor units, rounded down.
+     */
+    public static long toMinorUnitsFloor(final BigDecimal amount) {
+        if (amount.scale() <= SCALE) {
+            return amount.movePointRight(SCALE).longValueExact();
+        }
+        return amount.setScale(SCALE, RoundingMode.FLOOR).movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * @param minorUnits An amount in minor units.
+     * @return The same amount as BigDecimal with scale {@value #SCALE}.
+     */
+    public static BigDecimal toBigDecimal(final long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(minorUnits);
+    }
+
+    public Money plus(final Money other) {
+        return ofMinorUnits(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(final Money other) {
+        return ofMinorUnits(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    @Override
+    public int compareTo(final Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o instanceof Money && ((Money) o).minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,42 @@
+package schwarz.jobs.interview.coupon.core.services.model;
+
+/**
+ * Why a coupon was not applied to a basket.
+ */
+public enum RejectionReason {
+
+    /**
+     * The basket has no value that could be discounted.
+     */
+    EMPTY_BASKET,
+
+    /**
+     * The basket value is below the minimum basket value of the coupon.
+     */
+    BELOW_MIN_BASKET_VALUE,
+
+    /**
+     * The validity window of the coupon has not started yet.
+     */
+    NOT_YET_VALID,
+
+    /**
+     * The validity window of the coupon has ended.
+     */
+    EXPIRED,
+
+    /**
+     * The coupon has been redeemed as often as it may be.
+     */
+    USAGE_LIMIT_REACHED,
+
+    /**
+     * The coupon is eligible on its own, but the best combination of the submitted coupons doesn't include it.
+     */
+    NOT_COMBINABLE,
+
+    /**
+     * No coupon with the submitted code exists.
+     */
+    UNKNOWN_CODE
+}
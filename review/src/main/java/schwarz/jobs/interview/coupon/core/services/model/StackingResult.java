@@ -0,0 +1,33 @@
+package schwarz.jobs.interview.coupon.core.services.model;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Result of applying several coupons to one basket.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class StackingResult {
+
+    /**
+     * The updated basket, with the total discount of all applied coupons.
+     */
+    private Basket basket;
+
+    /**
+     * The normalized codes of the applied coupons, in the order they were applied.
+     */
+    private List<String> appliedCodes;
+
+    /**
+     * The normalized codes that were not applied, with the reason why, in request order.
+     */
+    private Map<String, RejectionReason> rejectedCodes;
+}
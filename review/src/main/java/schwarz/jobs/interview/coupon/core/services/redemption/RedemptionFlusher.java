@@ -0,0 +1,88 @@
+package schwarz.jobs.interview.coupon.core.services.redemption;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+
+/**
+ * Writes the redemptions counted by the {@link RedemptionLedger} to the database, all coupons of one
+ * flush in a single transaction, so the apply path never waits for a row lock.
+ * <p>
+ * The ledger only knows coupon ids, not codes, so with sharding every shard gets the whole flush in its
+ * own transaction and updates the ids it owns. Ids are unique across shards, so every id is counted once.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RedemptionFlusher {
+
+    private final RedemptionLedger redemptionLedger;
+
+    private final CouponRepository couponRepository;
+
+    private final CouponShards couponShards;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Scheduled(fixedDelayString = "${coupon.redemption.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        final Map<Long, Long> pending = redemptionLedger.drainPending();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        final List<Set<Long>> flushedPerShard = couponShards.onEachShard(() -> flushShard(pending));
+        if (!flushedPerShard.contains(null)) {
+            log.debug("Flushed redemptions of {} coupons", pending.size());
+            return;
+        }
+
+        // a failed shard rolled back, only its coupons are retried, the others are persisted already
+        final Map<Long, Long> unflushed = new HashMap<>(pending);
+        flushedPerShard.stream()
+            .filter(Objects::nonNull)
+            .forEach(flushed -> unflushed.keySet().removeAll(flushed));
+        log.warn("Flushing redemptions of {} coupons failed, retrying with the next flush", unflushed.size());
+        redemptionLedger.restorePending(unflushed);
+    }
+
+    /**
+     * @return The ids of the coupons updated on the current shard, or null if its transaction failed.
+     */
+    private Set<Long> flushShard(final Map<Long, Long> pending) {
+        try {
+            return transactionTemplate.execute(status -> {
+                final Set<Long> updated = new HashSet<>();
+                pending.forEach((id, delta) -> {
+                    if (couponRepository.addRedemptions(id, delta) > 0) {
+                        updated.add(id);
+                    }
+                });
+                return updated;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Flushing redemptions to a shard failed", e);
+            return null;
+        }
+    }
+
+    // redemptions counted since the last flush must not get lost on a regular shutdown
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
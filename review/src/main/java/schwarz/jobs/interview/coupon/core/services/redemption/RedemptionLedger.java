@@ -0,0 +1,214 @@
+package schwarz.jobs.interview.coupon.core.services.redemption;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.stereotype.Component;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+/**
+ * In-memory, contention-free redemption counting for coupons with a usage limit.
+ * <p>
+ * The remaining redemptions of a coupon are split over several stripes, each decremented with its own
+ * compare-and-set, so concurrent applications of the same hot code rarely touch the same cache line.
+ * A coupon is never over-redeemed: the stripes only ever hand out what was left when the budget was
+ * created, and a redemption only succeeds by taking one unit from a stripe that still has one.
+ * <p>
+ * The ledger is the source of truth for redemptions of this instance. The {@link RedemptionFlusher}
+ * periodically writes the redemptions taken since the last flush to the database in one batch.
+ * <p>
+ * A budget is rebuilt when a coupon with a newer {@code updatedAt} is redeemed, e.g. after its usage limit
+ * was changed and the coupon re-cached or refreshed by the snapshot. The new budget starts from the total the
+ * old one had counted, persisted count plus everything taken since, not from the reloaded redemption count
+ * minus what is not flushed yet, which would miss a flush that lands between reloading and rebuilding.
+ * The redemptions not flushed yet move to the new budget, so the next flush still reports them.
+ */
+@Component
+public class RedemptionLedger {
+
+    private static final int STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+
+    private final Map<Long, Budget> budgets = new ConcurrentHashMap<>();
+
+    /**
+     * Takes one redemption of the given coupon.
+     *
+     * @param coupon The coupon to redeem.
+     * @return true if the coupon may be applied, false if its usage limit is reached.
+     */
+    public boolean tryRedeem(final Coupon coupon) {
+        if (coupon.getMaxRedemptions() == null) {
+            return true;
+        }
+        if (coupon.getId() == null) {
+            // created write-behind and not committed yet, redemptions can't be counted before it has an id
+            return false;
+        }
+        return budgetOf(coupon).take();
+    }
+
+    /**
+     * Gives back a redemption taken with {@link #tryRedeem(Coupon)} that was not used after all.
+     *
+     * @param coupon The coupon to give the redemption back to.
+     */
+    public void release(final Coupon coupon) {
+        if (coupon.getMaxRedemptions() != null && coupon.getId() != null) {
+            budgetOf(coupon).give();
+        }
+    }
+
+    /**
+     * Collects the redemptions taken since the previous call, per coupon id. Only called by the flusher.
+     *
+     * @return The number of redemptions to add to the persisted count, per coupon id. Never contains zeros.
+     */
+    Map<Long, Long> drainPending() {
+        final Map<Long, Long> pending = new LinkedHashMap<>();
+        budgets.forEach((couponId, budget) -> {
+            final long delta = budget.drain();
+            if (delta != 0) {
+                pending.put(couponId, delta);
+            }
+        });
+        return pending;
+    }
+
+    /**
+     * Returns drained redemptions that could not be persisted, so the next flush retries them.
+     */
+    void restorePending(final Map<Long, Long> pending) {
+        pending.forEach((couponId, delta) -> {
+            final Budget budget = budgets.get(couponId);
+            if (budget != null) {
+                budget.undrain(delta);
+            }
+        });
+    }
+
+    private Budget budgetOf(final Coupon coupon) {
+        final Budget budget = budgets.get(coupon.getId());
+        if (budget != null && !budget.isOutdatedBy(coupon)) {
+            return budget;
+        }
+        return budgets.compute(coupon.getId(), (id, current) -> {
+            if (current == null) {
+                return new Budget(coupon, coupon.getRedemptionCount(), 0);
+            }
+            // a stale copy of the coupon, e.g. from a snapshot not refreshed yet, must not rebuild it again
+            if (!current.isOutdatedBy(coupon)) {
+                return current;
+            }
+            final long unflushed = current.retire();
+            // the reloaded count may include flushes of other instances, it never includes anything twice
+            return new Budget(coupon, Math.max(coupon.getRedemptionCount(), current.redeemed()), unflushed);
+        });
+    }
+
+    private static final class Budget {
+
+        private final long initial;
+
+        // redemptions of the coupon in total when the budget was created, persisted or not
+        private final long redeemedBefore;
+
+        private final Long maxRedemptions;
+
+        private final Instant updatedAt;
+
+        private final AtomicLongArray remaining = new AtomicLongArray(STRIPES);
+
+        // only touched by the single flusher thread, and by retire once the budget is replaced
+        private long flushed;
+
+        private long retiredLeft;
+
+        /**
+         * @param coupon The coupon to build the budget for.
+         * @param redeemedBefore Redemptions of the coupon in total so far, flushed or not.
+         * @param unflushed Redemptions taken from the replaced budget that the flusher has not reported yet.
+         */
+        Budget(final Coupon coupon, final long redeemedBefore, final long unflushed) {
+            this.initial = Math.max(0, coupon.getMaxRedemptions() - redeemedBefore);
+            this.redeemedBefore = redeemedBefore;
+            this.maxRedemptions = coupon.getMaxRedemptions();
+            this.updatedAt = coupon.getUpdatedAt();
+            // the carried over redemptions are reported by the first drain of this budget
+            this.flushed = -unflushed;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                remaining.set(stripe, initial / STRIPES + (stripe < initial % STRIPES ? 1 : 0));
+            }
+        }
+
+        boolean isOutdatedBy(final Coupon coupon) {
+            if (updatedAt == null || coupon.getUpdatedAt() == null) {
+                return !maxRedemptions.equals(coupon.getMaxRedemptions());
+            }
+            return coupon.getUpdatedAt().isAfter(updatedAt);
+        }
+
+        /**
+         * Empties the stripes, so redemptions still racing for this budget fail, and returns the redemptions
+         * taken but not drained yet.
+         */
+        synchronized long retire() {
+            long left = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                left += remaining.getAndSet(stripe, 0);
+            }
+            retiredLeft = left;
+            final long unflushed = initial - left - flushed;
+            flushed = initial;
+            return unflushed;
+        }
+
+        /**
+         * @return Redemptions of the coupon in total, only called on a retired budget.
+         */
+        synchronized long redeemed() {
+            return redeemedBefore + initial - retiredLeft;
+        }
+
+        boolean take() {
+            final int start = home();
+            for (int i = 0; i < STRIPES; i++) {
+                final int stripe = (start + i) & (STRIPES - 1);
+                long left = remaining.get(stripe);
+                while (left > 0) {
+                    if (remaining.compareAndSet(stripe, left, left - 1)) {
+                        return true;
+                    }
+                    left = remaining.get(stripe);
+                }
+            }
+            return false;
+        }
+
+        void give() {
+            remaining.incrementAndGet(home());
+        }
+
+        synchronized long drain() {
+            long left = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                left += remaining.get(stripe);
+            }
+            final long taken = initial - left;
+            final long delta = taken - flushed;
+            flushed = taken;
+            return delta;
+        }
+
+        synchronized void undrain(final long delta) {
+            flushed -= delta;
+        }
+
+        private static int home() {
+            return (int) Thread.currentThread().threadId() & (STRIPES - 1);
+        }
+    }
+}
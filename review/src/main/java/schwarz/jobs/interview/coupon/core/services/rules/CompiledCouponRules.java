@@ -0,0 +1,54 @@
+package schwarz.jobs.interview.coupon.core.services.rules;
+
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+
+/**
+ * The eligibility rules of one coupon, compiled once into the ordered list of checks that actually
+ * apply to it. Coupons without conditions compile to an empty list and cost nothing per request.
+ * All amounts are precompiled to minor units (see {@link schwarz.jobs.interview.coupon.core.services.model.Money}).
+ */
+public final class CompiledCouponRules {
+
+    private final EligibilityRule[] rules;
+
+    private final long discount;
+
+    private final long minBasketValue;
+
+    CompiledCouponRules(final EligibilityRule[] rules, final long discount, final long minBasketValue) {
+        this.rules = rules;
+        this.discount = discount;
+        this.minBasketValue = minBasketValue;
+    }
+
+    /**
+     * @return The discount of the coupon in minor units.
+     */
+    public long getDiscount() {
+        return discount;
+    }
+
+    /**
+     * @return The minimum basket value of the coupon in minor units, 0 if it has none.
+     */
+    public long getMinBasketValue() {
+        return minBasketValue;
+    }
+
+    /**
+     * Evaluates the rules in order and stops at the first one that is not met.
+     *
+     * @param basketValue The value of the basket the coupon is applied to, in minor units.
+     * @param now The evaluation time in epoch milliseconds.
+     * @return The reason the basket is rejected, or null if it is eligible.
+     */
+    public RejectionReason evaluate(final long basketValue, final long now) {
+        for (EligibilityRule rule : rules) {
+            final RejectionReason reason = rule.check(basketValue, now);
+            if (reason != null) {
+                return reason;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,96 @@
+package schwarz.jobs.interview.coupon.core.services.rules;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.Money;
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+
+/**
+ * Decides whether a coupon may be applied to a basket.
+ * <p>
+ * The conditions of a coupon are compiled once into {@link CompiledCouponRules} and memoized per coupon
+ * instance, so a cached coupon is never re-interpreted. The memo holds its coupons weakly and forgets a
+ * coupon together with the coupon cache entry it came from.
+ */
+@Component
+public class CouponRuleEngine {
+
+    private final Clock clock;
+
+    private final Cache<Coupon, CompiledCouponRules> compiledRules = Caffeine.newBuilder()
+        .weakKeys()
+        .build();
+
+    public CouponRuleEngine(final Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Evaluates the eligibility rules of a coupon against a basket.
+     *
+     * @param coupon The coupon to be applied.
+     * @param basket The basket the coupon is applied to.
+     * @return The reason the basket is rejected, or null if the coupon may be applied.
+     */
+    public RejectionReason evaluate(final Coupon coupon, final Basket basket) {
+        return evaluate(coupon, Money.toMinorUnitsFloor(basket.getValue()));
+    }
+
+    /**
+     * Evaluates the eligibility rules of a coupon against a basket value.
+     *
+     * @param coupon The coupon to be applied.
+     * @param basketValue The basket value in minor units.
+     * @return The reason the basket is rejected, or null if the coupon may be applied.
+     */
+    public RejectionReason evaluate(final Coupon coupon, final long basketValue) {
+        return compiled(coupon).evaluate(basketValue, clock.millis());
+    }
+
+    /**
+     * @param coupon A coupon.
+     * @return The memoized compiled rules of the coupon.
+     */
+    public CompiledCouponRules compiled(final Coupon coupon) {
+        return compiledRules.get(coupon, CouponRuleEngine::compile);
+    }
+
+    /**
+     * Compiles the conditions of a coupon, cheapest and most selective rules first.
+     *
+     * @param coupon The coupon to compile.
+     * @return The compiled rules.
+     */
+    static CompiledCouponRules compile(final Coupon coupon) {
+        final List<EligibilityRule> rules = new ArrayList<>(3);
+        long minBasketValue = 0;
+
+        if (coupon.getMinBasketValue() != null && coupon.getMinBasketValue().signum() > 0) {
+            final long minValue = Money.toMinorUnits(coupon.getMinBasketValue());
+            minBasketValue = minValue;
+            rules.add((basketValue, now) -> basketValue < minValue ? RejectionReason.BELOW_MIN_BASKET_VALUE : null);
+        }
+
+        if (coupon.getValidFrom() != null) {
+            final long validFrom = coupon.getValidFrom().toEpochMilli();
+            rules.add((basketValue, now) -> now < validFrom ? RejectionReason.NOT_YET_VALID : null);
+        }
+
+        if (coupon.getValidUntil() != null) {
+            final long validUntil = coupon.getValidUntil().toEpochMilli();
+            rules.add((basketValue, now) -> now >= validUntil ? RejectionReason.EXPIRED : null);
+        }
+
+        return new CompiledCouponRules(rules.toArray(new EligibilityRule[0]), Money.toMinorUnits(coupon.getDiscount()),
+            minBasketValue);
+    }
+}
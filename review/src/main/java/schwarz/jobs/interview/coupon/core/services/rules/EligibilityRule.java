@@ -0,0 +1,17 @@
+package schwarz.jobs.interview.coupon.core.services.rules;
+
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+
+/**
+ * A single compiled condition a basket has to meet for a coupon to be applied.
+ */
+@FunctionalInterface
+interface EligibilityRule {
+
+    /**
+     * @param basketValue The value of the basket the coupon is applied to, in minor units.
+     * @param now The evaluation time in epoch milliseconds.
+     * @return The reason the basket is rejected, or null if the rule is met.
+     */
+    RejectionReason check(long basketValue, long now);
+}
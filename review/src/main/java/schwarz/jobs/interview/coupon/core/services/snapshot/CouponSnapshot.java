@@ -0,0 +1,137 @@
+package schwarz.jobs.interview.coupon.core.services.snapshot;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+/**
+ * Immutable lookup table of the active coupon catalogue, keyed by normalized code.
+ * <p>
+ * Codes and coupons live in two parallel arrays addressed by open addressing with linear probing, at a
+ * load factor of at most one half. A lookup is a hash, a few array reads and string comparisons, without
+ * locks, entry objects or pointer chasing through buckets. A snapshot is never modified after it has been
+ * built, so it can be read by any number of threads once it has been published.
+ */
+public final class CouponSnapshot {
+
+    static final CouponSnapshot EMPTY = new CouponSnapshot(new String[1], new Coupon[1], 0, 0, null, Instant.EPOCH);
+
+    private final String[] codes;
+
+    private final Coupon[] coupons;
+
+    private final int size;
+
+    private final long version;
+
+    private final Instant refreshedAt;
+
+    private final Instant highWaterMark;
+
+    private CouponSnapshot(final String[] codes, final Coupon[] coupons, final int size, final long version,
+                           final Instant refreshedAt, final Instant highWaterMark) {
+        this.codes = codes;
+        this.coupons = coupons;
+        this.size = size;
+        this.version = version;
+        this.refreshedAt = refreshedAt;
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Builds a snapshot of the given coupons.
+     *
+     * @param coupons The coupons with distinct, normalized codes.
+     * @param version The version of the new snapshot.
+     * @param refreshedAt When the data of the snapshot was read.
+     * @param highWaterMark The latest update time of all coupons read for the snapshot.
+     * @return The snapshot.
+     */
+    static CouponSnapshot build(final Collection<Coupon> coupons, final long version, final Instant refreshedAt,
+                                final Instant highWaterMark) {
+        final int capacity = Integer.highestOneBit(Math.max(1, coupons.size()) * 2 - 1) << 1;
+        final String[] codes = new String[capacity];
+        final Coupon[] values = new Coupon[capacity];
+        final int mask = capacity - 1;
+
+        for (Coupon coupon : coupons) {
+            int slot = spread(coupon.getCode().hashCode()) & mask;
+            while (codes[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            codes[slot] = coupon.getCode();
+            values[slot] = coupon;
+        }
+        return new CouponSnapshot(codes, values, coupons.size(), version, refreshedAt, highWaterMark);
+    }
+
+    /**
+     * @param refreshedAt When the database was last checked for changes.
+     * @return A snapshot with the same content and version, sharing the lookup table with this one.
+     */
+    CouponSnapshot withRefreshedAt(final Instant refreshedAt) {
+        return new CouponSnapshot(codes, coupons, size, version, refreshedAt, highWaterMark);
+    }
+
+    /**
+     * @param code The normalized coupon code.
+     * @return The coupon, or null if it is not part of the snapshot.
+     */
+    public Coupon get(final String code) {
+        final int mask = codes.length - 1;
+        int slot = spread(code.hashCode()) & mask;
+        String candidate;
+        // the table is never full, every probe sequence ends at an empty slot
+        while ((candidate = codes[slot]) != null) {
+            if (candidate.equals(code)) {
+                return coupons[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @param action Called with every coupon of the snapshot.
+     */
+    void forEach(final Consumer<Coupon> action) {
+        for (Coupon coupon : coupons) {
+            if (coupon != null) {
+                action.accept(coupon);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The version of the snapshot, increasing with every refresh. 0 until the first snapshot is built.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return When the data of the snapshot was read from the database, null until the first snapshot is built.
+     */
+    public Instant getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    /**
+     * @return The latest update time of the coupons in the snapshot, where the next incremental refresh starts.
+     */
+    Instant getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    // String hash codes of similar codes differ mostly in the low bits of each character, mixing the high
+    // bits in keeps the probe sequences short for sequential codes like "summer0001", "summer0002"
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
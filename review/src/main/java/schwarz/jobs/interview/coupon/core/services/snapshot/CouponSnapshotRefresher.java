@@ -0,0 +1,132 @@
+package schwarz.jobs.interview.coupon.core.services.snapshot;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
+import schwarz.jobs.interview.coupon.core.repository.CouponExportRepository;
+
+/**
+ * Keeps the {@link CouponSnapshotStore} up to date when {@code coupon.snapshot.enabled} is set.
+ * <p>
+ * The first refresh reads the whole catalogue, later refreshes only read the coupons updated since the
+ * high-water mark of the current snapshot and merge them into a copy of it. Expired coupons are left out,
+ * their codes fall through to the cache and are rejected there. Deleted coupons are only dropped by the
+ * periodic full rebuild. A failing refresh keeps serving the previous snapshot, which shows in the
+ * {@code coupon.snapshot.age} metric.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "coupon.snapshot.enabled", havingValue = "true")
+public class CouponSnapshotRefresher {
+
+    // a transaction committing late can carry an update time slightly before the high-water mark,
+    // re-reading a short overlap catches it, re-read coupons that didn't change are skipped
+    private static final Duration OVERLAP = Duration.ofSeconds(5);
+
+    private final CouponSnapshotStore couponSnapshotStore;
+
+    private final CouponExportRepository couponExportRepository;
+
+    private final Clock clock;
+
+    @Scheduled(fixedDelayString = "${coupon.snapshot.refresh-interval-ms:10000}")
+    public synchronized void refresh() {
+        try {
+            if (couponSnapshotStore.current().getVersion() == 0) {
+                rebuild();
+            } else {
+                refreshChanges();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Refreshing the coupon snapshot failed, serving version {}",
+                couponSnapshotStore.current().getVersion(), e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${coupon.snapshot.full-refresh-interval-ms:3600000}",
+               fixedDelayString = "${coupon.snapshot.full-refresh-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        final long started = System.nanoTime();
+        final Instant readAt = clock.instant();
+        final List<Coupon> coupons = new ArrayList<>();
+        Instant highWaterMark = Instant.EPOCH;
+
+        try (Stream<CouponView> rows = couponExportRepository.streamAll()) {
+            for (CouponView row : (Iterable<CouponView>) rows::iterator) {
+                highWaterMark = latest(highWaterMark, row.getUpdatedAt());
+                if (isActive(row.getValidUntil(), readAt)) {
+                    coupons.add(row.toCoupon());
+                }
+            }
+        }
+
+        final CouponSnapshot next = CouponSnapshot.build(coupons, couponSnapshotStore.current().getVersion() + 1,
+            readAt, highWaterMark);
+        couponSnapshotStore.publish(next);
+        log.info("Built coupon snapshot version {} with {} coupons in {} ms",
+            next.getVersion(), next.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void refreshChanges() {
+        final CouponSnapshot current = couponSnapshotStore.current();
+        final Instant readAt = clock.instant();
+        final Map<String, Coupon> changed = new HashMap<>();
+        Instant highWaterMark = current.getHighWaterMark();
+
+        try (Stream<CouponView> rows = couponExportRepository.streamChangedSince(current.getHighWaterMark().minus(OVERLAP))) {
+            for (CouponView row : (Iterable<CouponView>) rows::iterator) {
+                highWaterMark = latest(highWaterMark, row.getUpdatedAt());
+                final Coupon known = current.get(row.getCode());
+                if (known == null || !row.getUpdatedAt().equals(known.getUpdatedAt())) {
+                    changed.put(row.getCode(), row.toCoupon());
+                }
+            }
+        }
+
+        if (changed.isEmpty()) {
+            couponSnapshotStore.publish(current.withRefreshedAt(readAt));
+            return;
+        }
+
+        final Map<String, Coupon> merged = new HashMap<>(current.size() * 4 / 3 + changed.size() + 1);
+        current.forEach(coupon -> {
+            if (isActive(coupon.getValidUntil(), readAt)) {
+                merged.put(coupon.getCode(), coupon);
+            }
+        });
+        changed.forEach((code, coupon) -> {
+            if (isActive(coupon.getValidUntil(), readAt)) {
+                merged.put(code, coupon);
+            } else {
+                merged.remove(code);
+            }
+        });
+
+        final CouponSnapshot next = CouponSnapshot.build(merged.values(), current.getVersion() + 1, readAt, highWaterMark);
+        couponSnapshotStore.publish(next);
+        log.debug("Merged {} changed coupons into snapshot version {}", changed.size(), next.getVersion());
+    }
+
+    private static boolean isActive(final Instant validUntil, final Instant now) {
+        return validUntil == null || validUntil.isAfter(now);
+    }
+
+    private static Instant latest(final Instant current, final Instant candidate) {
+        return candidate != null && candidate.isAfter(current) ? candidate : current;
+    }
+}
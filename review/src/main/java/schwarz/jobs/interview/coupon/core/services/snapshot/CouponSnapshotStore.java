@@ -0,0 +1,79 @@
+package schwarz.jobs.interview.coupon.core.services.snapshot;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.domain.CouponCodes;
+
+/**
+ * Publishes the current {@link CouponSnapshot} to the apply path.
+ * <p>
+ * The snapshot is replaced as a whole with a single volatile write, readers either see the old or the
+ * new snapshot and never block. Until a snapshot is built, or when snapshots are disabled, the store
+ * holds an empty snapshot and every lookup falls through to the coupon cache.
+ */
+@Component
+public class CouponSnapshotStore implements MeterBinder {
+
+    private final Clock clock;
+
+    private volatile CouponSnapshot snapshot = CouponSnapshot.EMPTY;
+
+    public CouponSnapshotStore(final Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @param code The coupon code.
+     * @return The coupon from the current snapshot, or null if the snapshot doesn't contain it.
+     */
+    public Coupon get(final String code) {
+        return snapshot.get(CouponCodes.normalize(code));
+    }
+
+    /**
+     * @return The current snapshot.
+     */
+    public CouponSnapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Replaces the current snapshot, only called by the refresher.
+     */
+    void publish(final CouponSnapshot next) {
+        snapshot = next;
+    }
+
+    /**
+     * Publishes the snapshot version, its size and its age in seconds, the age is the staleness bound of
+     * everything served from the snapshot.
+     */
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("coupon.snapshot.version", this, store -> store.snapshot.getVersion())
+            .description("Version of the coupon snapshot served to apply requests")
+            .register(registry);
+        Gauge.builder("coupon.snapshot.size", this, store -> store.snapshot.size())
+            .description("Number of coupons in the snapshot")
+            .register(registry);
+        Gauge.builder("coupon.snapshot.age", this, CouponSnapshotStore::ageSeconds)
+            .description("Time since the data of the snapshot was read from the database")
+            .baseUnit("seconds")
+            .register(registry);
+    }
+
+    private double ageSeconds() {
+        final CouponSnapshot current = snapshot;
+        if (current.getRefreshedAt() == null) {
+            return Double.NaN;
+        }
+        return Duration.between(current.getRefreshedAt(), clock.instant()).toMillis() / 1000.0;
+    }
+}
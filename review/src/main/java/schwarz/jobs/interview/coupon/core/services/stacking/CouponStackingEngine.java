@@ -0,0 +1,190 @@
+package schwarz.jobs.interview.coupon.core.services.stacking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+import schwarz.jobs.interview.coupon.core.services.rules.CompiledCouponRules;
+import schwarz.jobs.interview.coupon.core.services.rules.CouponRuleEngine;
+
+/**
+ * Finds the combination of coupons with the highest total discount for a basket.
+ * <p>
+ * Coupons are applied one after the other, and the minimum basket value of a coupon is checked against
+ * the value left after the coupons applied before it. A non-stackable coupon is only applied on its own,
+ * and at most one coupon per stacking group is applied. Ties are broken towards fewer coupons, so no
+ * redemption is used up without increasing the discount.
+ * <p>
+ * Stackable coupons are applied in a canonical order, descending by minimum basket value minus discount:
+ * the coupon whose minimum leaves the least room for earlier discounts comes first. For a fixed set of
+ * coupons this order admits the set whenever any order would, so only subsets need to be searched, never
+ * permutations. The subsets are searched depth first with branch and bound: a branch is dropped as soon
+ * as even all remaining coupons together can't beat the best combination found so far. The time windows
+ * and the minimum against the full basket are evaluated once per coupon up front, inside the search the
+ * eligibility of a coupon is a single comparison.
+ */
+@Component
+public class CouponStackingEngine {
+
+    /**
+     * Maximum number of coupons per basket, bounds the worst case of the search.
+     */
+    public static final int MAX_COUPONS = 20;
+
+    private static final Comparator<Candidate> CANONICAL_ORDER = Comparator
+        .comparingLong((Candidate candidate) -> candidate.minBasketValue - candidate.discount).reversed()
+        .thenComparing(candidate -> candidate.coupon.getCode());
+
+    private final CouponRuleEngine couponRuleEngine;
+
+    public CouponStackingEngine(final CouponRuleEngine couponRuleEngine) {
+        this.couponRuleEngine = couponRuleEngine;
+    }
+
+    /**
+     * Selects the best combination of the given coupons.
+     *
+     * @param coupons The distinct coupons submitted for the basket, at most {@value #MAX_COUPONS}.
+     * @param basketValue The basket value in minor units, greater than zero.
+     * @return The coupons to apply with their total discount, and the reasons for the others.
+     * @throws IllegalArgumentException If more than {@value #MAX_COUPONS} coupons are given.
+     */
+    public StackingSelection select(final List<Coupon> coupons, final long basketValue) {
+        if (coupons.size() > MAX_COUPONS) {
+            throw new IllegalArgumentException("At most " + MAX_COUPONS + " coupons can be combined");
+        }
+
+        final Map<String, RejectionReason> rejected = new LinkedHashMap<>();
+        final List<Candidate> stackable = new ArrayList<>(coupons.size());
+        final List<Candidate> exclusive = new ArrayList<>();
+        final Map<String, Long> groupBits = new HashMap<>();
+
+        for (Coupon coupon : coupons) {
+            final RejectionReason reason = couponRuleEngine.evaluate(coupon, basketValue);
+            if (reason != null) {
+                rejected.put(coupon.getCode(), reason);
+                continue;
+            }
+            final CompiledCouponRules rules = couponRuleEngine.compiled(coupon);
+            if (coupon.isStackable()) {
+                final long group = coupon.getStackingGroup() == null ? 0
+                    : groupBits.computeIfAbsent(coupon.getStackingGroup(), name -> 1L << groupBits.size());
+                stackable.add(new Candidate(coupon, rules.getDiscount(), rules.getMinBasketValue(), group));
+            } else {
+                exclusive.add(new Candidate(coupon, rules.getDiscount(), rules.getMinBasketValue(), 0));
+            }
+        }
+
+        stackable.sort(CANONICAL_ORDER);
+        final Search search = new Search(stackable, basketValue);
+        search.run(0, 0, 0, 0, 0);
+
+        List<Coupon> applied = search.bestCoupons();
+        long discount = search.bestDiscount;
+        for (Candidate candidate : exclusive) {
+            final long candidateDiscount = Math.min(candidate.discount, basketValue);
+            // a single coupon wins ties against a combination
+            if (candidateDiscount > discount || (candidateDiscount == discount && applied.size() > 1)) {
+                applied = List.of(candidate.coupon);
+                discount = candidateDiscount;
+            }
+        }
+
+        final List<Coupon> selected = applied;
+        for (Coupon coupon : coupons) {
+            if (!rejected.containsKey(coupon.getCode()) && selected.stream().noneMatch(other -> other == coupon)) {
+                rejected.put(coupon.getCode(), RejectionReason.NOT_COMBINABLE);
+            }
+        }
+        return new StackingSelection(applied, discount, rejected);
+    }
+
+    private static final class Candidate {
+
+        final Coupon coupon;
+
+        final long discount;
+
+        final long minBasketValue;
+
+        final long group;
+
+        Candidate(final Coupon coupon, final long discount, final long minBasketValue, final long group) {
+            this.coupon = coupon;
+            this.discount = discount;
+            this.minBasketValue = minBasketValue;
+            this.group = group;
+        }
+    }
+
+    /**
+     * Depth first branch and bound over the stackable candidates in canonical order. Not thread-safe,
+     * one instance per selection.
+     */
+    private static final class Search {
+
+        private final List<Candidate> candidates;
+
+        private final long basketValue;
+
+        // the total discount of all candidates from an index on, the optimistic bound of a branch
+        private final long[] remainingDiscount;
+
+        private long bestDiscount;
+
+        private int bestCount;
+
+        private int bestSelection;
+
+        Search(final List<Candidate> candidates, final long basketValue) {
+            this.candidates = candidates;
+            this.basketValue = basketValue;
+            this.remainingDiscount = new long[candidates.size() + 1];
+            for (int i = candidates.size() - 1; i >= 0; i--) {
+                remainingDiscount[i] = remainingDiscount[i + 1] + candidates.get(i).discount;
+            }
+        }
+
+        void run(final int index, final long discount, final long groups, final int count, final int selection) {
+            if (discount > bestDiscount || (discount == bestDiscount && count < bestCount)) {
+                bestDiscount = discount;
+                bestCount = count;
+                bestSelection = selection;
+            }
+            if (index == candidates.size() || discount >= basketValue) {
+                return;
+            }
+
+            // every improvement from here on adds at least one more coupon
+            final long bound = Math.min(basketValue, discount + remainingDiscount[index]);
+            if (bound < bestDiscount || (bound == bestDiscount && count + 1 >= bestCount)) {
+                return;
+            }
+
+            // taking the coupon first finds good combinations early, which makes the bound prune more
+            final Candidate candidate = candidates.get(index);
+            if ((groups & candidate.group) == 0 && basketValue - discount >= candidate.minBasketValue) {
+                run(index + 1, Math.min(basketValue, discount + candidate.discount), groups | candidate.group,
+                    count + 1, selection | 1 << index);
+            }
+            run(index + 1, discount, groups, count, selection);
+        }
+
+        List<Coupon> bestCoupons() {
+            final List<Coupon> coupons = new ArrayList<>(bestCount);
+            for (int i = 0; i < candidates.size(); i++) {
+                if ((bestSelection & 1 << i) != 0) {
+                    coupons.add(candidates.get(i).coupon);
+                }
+            }
+            return coupons;
+        }
+    }
+}
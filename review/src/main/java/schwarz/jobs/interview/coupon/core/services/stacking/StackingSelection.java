@@ -0,0 +1,32 @@
+package schwarz.jobs.interview.coupon.core.services.stacking;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+
+/**
+ * The best combination of coupons the {@link CouponStackingEngine} found for a basket.
+ */
+@Getter
+@AllArgsConstructor
+public class StackingSelection {
+
+    /**
+     * The coupons to apply, in the order they are applied.
+     */
+    private final List<Coupon> applied;
+
+    /**
+     * The total discount of the applied coupons in minor units, never more than the basket value.
+     */
+    private final long discount;
+
+    /**
+     * The codes of the submitted coupons that are not applied, with the reason why.
+     */
+    private final Map<String, RejectionReason> rejected;
+}
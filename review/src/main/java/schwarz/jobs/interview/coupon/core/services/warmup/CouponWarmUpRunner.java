@@ -0,0 +1,79 @@
+package schwarz.jobs.interview.coupon.core.services.warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
+import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.Money;
+import schwarz.jobs.interview.coupon.core.services.rules.CouponRuleEngine;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+
+/**
+ * Runs the coupon lookup path before the instance reports ready, enabled with {@code coupon.warm-up.enabled}.
+ * <p>
+ * Runners complete before the readiness state changes to accepting traffic, so the first real requests
+ * neither initialize lazy beans, Hibernate and the connection pool nor load the classes of the lookup
+ * path. A sample of the catalogue is looked up and evaluated, which also leaves it in the cache. Nothing is
+ * applied, so redemptions, metrics and the journal only ever see real requests.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "coupon.warm-up.enabled", havingValue = "true")
+public class CouponWarmUpRunner implements ApplicationRunner {
+
+    private static final BigDecimal BASKET_VALUE = BigDecimal.valueOf(100);
+
+    private final CouponService couponService;
+
+    private final CouponRuleEngine couponRuleEngine;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${coupon.warm-up.sample-size:200}")
+    private int sampleSize;
+
+    @Value("${coupon.warm-up.rounds:3}")
+    private int rounds;
+
+    @Override
+    public void run(final ApplicationArguments args) throws Exception {
+        final long start = System.nanoTime();
+
+        final List<CouponView> sample = couponService
+            .getCouponPage(0, Math.max(1, Math.min(sampleSize, CouponService.MAX_PAGE_SIZE)))
+            .getItems();
+
+        final long basketValue = Money.toMinorUnits(BASKET_VALUE);
+        // the first round loads the coupons into the cache, the later ones run the cached path the requests take
+        for (int round = 0; round < rounds; round++) {
+            for (CouponView view : sample) {
+                couponService.getCachedCoupon(view.getCode())
+                    .or(() -> couponService.getCoupon(view.getCode()))
+                    .ifPresent(coupon -> couponRuleEngine.evaluate(coupon, basketValue));
+            }
+        }
+
+        // the JSON binding of the apply endpoint
+        final ApplicationRequestDTO request = ApplicationRequestDTO.builder()
+            .code(sample.isEmpty() ? "warm-up" : sample.get(0).getCode())
+            .basket(Basket.builder().value(BASKET_VALUE).build())
+            .build();
+        objectMapper.readValue(objectMapper.writeValueAsBytes(request), ApplicationRequestDTO.class);
+
+        log.info("Warmed up the coupon lookup path with {} coupons in {} ms",
+            sample.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
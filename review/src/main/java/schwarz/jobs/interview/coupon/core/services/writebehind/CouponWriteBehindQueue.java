@@ -0,0 +1,241 @@
+package schwarz.jobs.interview.coupon.core.services.writebehind;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCache;
+import schwarz.jobs.interview.coupon.core.services.exception.WriteBehindQueueFullException;
+import schwarz.jobs.interview.coupon.core.services.filter.CouponCodeFilterStore;
+
+/**
+ * Write-behind persistence of new coupons with group commit, enabled with {@code coupon.write-behind.enabled}.
+ * <p>
+ * A submitted coupon is put into the coupon cache right away, so it can be looked up and applied before it is
+ * persisted, and queued. A single writer thread takes everything queued, waiting at most
+ * {@link WriteBehindProperties#getMaxLatency()} after the oldest create for more to arrive, and commits up to
+ * {@link WriteBehindProperties#getBatchSize()} coupons in one transaction. The future returned by
+ * {@link #submit(Coupon)} completes only after that transaction has committed, so whoever waits for it,
+ * e.g. the 201 of {@code /create}, never acknowledges a coupon that could still be lost.
+ * <p>
+ * A queued coupon has no id until its group is committed. Until then its usage limit can't be tracked and
+ * limited coupons are not redeemable, see {@link schwarz.jobs.interview.coupon.core.services.redemption.RedemptionLedger}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "coupon.write-behind.enabled", havingValue = "true")
+public class CouponWriteBehindQueue implements MeterBinder {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final CouponRepository couponRepository;
+
+    private final CouponShards couponShards;
+
+    private final CouponCache couponCache;
+
+    private final CouponCodeFilterStore couponCodeFilterStore;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final WriteBehindProperties properties;
+
+    private final BlockingQueue<PendingCreate> queue;
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    private DistributionSummary groupSizes;
+
+    public CouponWriteBehindQueue(final CouponRepository couponRepository, final CouponShards couponShards,
+                                  final CouponCache couponCache, final CouponCodeFilterStore couponCodeFilterStore,
+                                  final TransactionTemplate transactionTemplate, final WriteBehindProperties properties) {
+        this.couponRepository = couponRepository;
+        this.couponShards = couponShards;
+        this.couponCache = couponCache;
+        this.couponCodeFilterStore = couponCodeFilterStore;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.writer = Thread.ofPlatform().name("coupon-write-behind").daemon().start(this::writeLoop);
+    }
+
+    /**
+     * Makes a new coupon visible to lookups and queues it for the next group commit. Unless the code filter
+     * rules it out, the code is looked up on its shard first, so this blocks and must not run on an event loop.
+     *
+     * @param coupon The validated, not yet persisted coupon.
+     * @return Completes with the persisted coupon once its group is committed, or exceptionally if it can't
+     * be persisted, e.g. because its code already exists.
+     * @throws WriteBehindQueueFullException If the queue is full or shutting down, nothing was queued then.
+     * @throws DuplicateKeyException If a coupon with the same code is cached, persisted or already queued.
+     */
+    public CompletableFuture<Coupon> submit(final Coupon coupon) {
+        // a persisted coupon that isn't cached yet must not be shadowed by the queued one, the unique index
+        // only catches the duplicate at commit time, after the queued coupon has already been served
+        if (couponCodeFilterStore.mightContain(coupon.getCode())
+            && couponCache.get(coupon.getCode(), this::findByCode).isPresent()) {
+            throw duplicate(coupon);
+        }
+
+        // visible before it is queued, a failing commit must find it in the cache to remove it again
+        couponCodeFilterStore.add(coupon.getCode());
+        if (!couponCache.putIfAbsent(coupon)) {
+            throw duplicate(coupon);
+        }
+        final PendingCreate pending = new PendingCreate(coupon);
+        // shutdown may start between the check and the offer, the writer may then have drained the queue and
+        // exited already. Taking the create back out tells: if it's still there, nobody will commit it
+        if (!running || !queue.offer(pending) || (!running && queue.remove(pending))) {
+            couponCache.remove(coupon);
+            throw new WriteBehindQueueFullException("Too many coupons waiting to be persisted, retry later");
+        }
+        return pending.future;
+    }
+
+    private Optional<Coupon> findByCode(final String code) {
+        return couponShards.onShardOf(code, () -> couponRepository.findByCode(code));
+    }
+
+    private static DuplicateKeyException duplicate(final Coupon coupon) {
+        return new DuplicateKeyException("Coupon code " + coupon.getCode() + " already exists");
+    }
+
+    private void writeLoop() {
+        final List<PendingCreate> group = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                final PendingCreate first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                collectGroup(group);
+                commit(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // commit completes every future itself, this only guards the writer thread
+                log.error("Write-behind writer failed", e);
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void collectGroup(final List<PendingCreate> group) throws InterruptedException {
+        final long deadline = System.nanoTime() + properties.getMaxLatency().toNanos();
+        while (group.size() < properties.getBatchSize()) {
+            // take whatever is queued already, then wait for more until the oldest create has waited long enough
+            if (queue.drainTo(group, properties.getBatchSize() - group.size()) > 0) {
+                continue;
+            }
+            final long remaining = deadline - System.nanoTime();
+            final PendingCreate next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void commit(final List<PendingCreate> group) {
+        if (groupSizes != null) {
+            groupSizes.record(group.size());
+        }
+        // with sharding one transaction per shard, each shard group commits or falls back on its own
+        couponShards.forEachShardGroup(group, pending -> pending.getCoupon().getCode(), this::commitShardGroup);
+    }
+
+    private void commitShardGroup(final List<PendingCreate> group) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                couponRepository.saveAll(group.stream().map(PendingCreate::getCoupon).collect(Collectors.toList())));
+            group.forEach(this::complete);
+        } catch (RuntimeException e) {
+            // one bad create, usually a duplicate code, must not fail the whole group
+            log.debug("Group commit of {} coupons failed, committing them one by one", group.size(), e);
+            group.forEach(this::commitSingle);
+        }
+    }
+
+    private void commitSingle(final PendingCreate pending) {
+        // the failed group already assigned an id, the coupon is still new though
+        pending.getCoupon().setId(null);
+        try {
+            transactionTemplate.executeWithoutResult(status -> couponRepository.save(pending.getCoupon()));
+            complete(pending);
+        } catch (RuntimeException e) {
+            // only the queued coupon, a persisted one cached meanwhile under the same code stays
+            couponCache.remove(pending.getCoupon());
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    private void complete(final PendingCreate pending) {
+        // the queued coupon may have been evicted before the commit, and a lookup since then found nothing
+        // and remembered the code as unknown. Caching the persisted coupon clears that negative entry
+        couponCache.put(pending.getCoupon());
+        pending.complete();
+    }
+
+    /**
+     * Stops accepting creates and commits everything still queued before the database goes away.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("coupon.write-behind.queue", queue, BlockingQueue::size)
+            .description("Created coupons waiting for their group commit")
+            .register(registry);
+        groupSizes = DistributionSummary.builder("coupon.write-behind.group.size")
+            .description("Number of coupons committed per transaction")
+            .register(registry);
+    }
+
+    private static final class PendingCreate {
+
+        private final Coupon coupon;
+
+        private final CompletableFuture<Coupon> future = new CompletableFuture<>();
+
+        PendingCreate(final Coupon coupon) {
+            this.coupon = coupon;
+        }
+
+        Coupon getCoupon() {
+            return coupon;
+        }
+
+        void complete() {
+            future.complete(coupon);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package schwarz.jobs.interview.coupon.core.services.writebehind;
+
+import java.time.Duration;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import lombok.Data;
+
+/**
+ * Settings of the write-behind coupon creation, bound from the {@code coupon.write-behind} prefix.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "coupon.write-behind")
+public class WriteBehindProperties {
+
+    /**
+     * Whether creates are queued and committed in groups instead of one transaction each.
+     */
+    private boolean enabled;
+
+    /**
+     * Maximum number of creates waiting for their commit, further creates are rejected until the queue drains.
+     */
+    @Min(1)
+    private int queueCapacity = 10_000;
+
+    /**
+     * Maximum number of coupons committed in one transaction.
+     */
+    @Min(1)
+    private int batchSize = 500;
+
+    /**
+     * How long the oldest create of a group waits for more creates before the group is committed anyway.
+     */
+    @NotNull
+    private Duration maxLatency = Duration.ofMillis(5);
+}
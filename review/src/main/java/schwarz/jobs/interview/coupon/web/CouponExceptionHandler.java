@@ -0,0 +1,92 @@
+package schwarz.jobs.interview.coupon.web;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import lombok.extern.slf4j.Slf4j;
+import schwarz.jobs.interview.coupon.core.services.exception.AdmissionRejectedException;
+import schwarz.jobs.interview.coupon.core.services.exception.CouponNotFoundException;
+import schwarz.jobs.interview.coupon.core.services.exception.IdempotencyKeyReuseException;
+import schwarz.jobs.interview.coupon.core.services.exception.InvalidBasketException;
+import schwarz.jobs.interview.coupon.core.services.exception.WriteBehindQueueFullException;
+import schwarz.jobs.interview.coupon.web.dto.ErrorResponseDTO;
+
+/**
+ * Translates service exceptions into HTTP responses for all coupon endpoints.
+ */
+@RestControllerAdvice
+@Slf4j
+public class CouponExceptionHandler {
+
+    @ExceptionHandler(CouponNotFoundException.class)
+    public ResponseEntity<ErrorResponseDTO> handleCouponNotFound(final CouponNotFoundException exception) {
+
+        log.debug("Coupons not found: {}", exception.getMissingCodes());
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ErrorResponseDTO.builder()
+            .message(exception.getMessage())
+            .missingCodes(exception.getMissingCodes())
+            .build());
+    }
+
+    @ExceptionHandler(InvalidBasketException.class)
+    public ResponseEntity<ErrorResponseDTO> handleInvalidBasket(final InvalidBasketException exception) {
+
+        return ResponseEntity.badRequest().body(ErrorResponseDTO.builder()
+            .message(exception.getMessage())
+            .build());
+    }
+
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<ErrorResponseDTO> handleIdempotencyKeyReuse(final IdempotencyKeyReuseException exception) {
+
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(ErrorResponseDTO.builder()
+            .message(exception.getMessage())
+            .build());
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ErrorResponseDTO> handleDataIntegrityViolation(final DataIntegrityViolationException exception) {
+
+        log.debug("Rejected conflicting coupon", exception);
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ErrorResponseDTO.builder()
+            .message("Coupon conflicts with an existing coupon, e.g. its code is already taken")
+            .build());
+    }
+
+    // tells clients to back off instead of retrying right away into a full queue
+    @ExceptionHandler(WriteBehindQueueFullException.class)
+    public ResponseEntity<ErrorResponseDTO> handleWriteBehindQueueFull(final WriteBehindQueueFullException exception) {
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(ErrorResponseDTO.builder()
+                .message(exception.getMessage())
+                .build());
+    }
+
+    // shed load, by the time the client retries the limit has adapted or the overload has passed
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<ErrorResponseDTO> handleAdmissionRejected(final AdmissionRejectedException exception) {
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(ErrorResponseDTO.builder()
+                .message(exception.getMessage())
+                .build());
+    }
+
+    // more specific handlers, like the one for CouponNotFoundException, take precedence
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponseDTO> handleIllegalArgument(final IllegalArgumentException exception) {
+
+        return ResponseEntity.badRequest().body(ErrorResponseDTO.builder()
+            .message(exception.getMessage())
+            .build());
+    }
+}
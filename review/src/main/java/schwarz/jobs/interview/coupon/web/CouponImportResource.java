@@ -0,0 +1,113 @@
+package schwarz.jobs.interview.coupon.web;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import schwarz.jobs.interview.coupon.core.services.importer.CouponImportService;
+import schwarz.jobs.interview.coupon.core.services.importer.ImportFormat;
+import schwarz.jobs.interview.coupon.core.services.importer.ImportReport;
+
+/**
+ * Streaming bulk import of coupons. Only available in the reactive execution mode, use the
+ * {@code coupon.import.file} command line import otherwise.
+ */
+@RestController
+@RequestMapping("/api/v1")
+@Slf4j
+@Tag(name = "Coupon Managment API")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CouponImportResource {
+
+    // number of request body buffers read ahead of the parser, bounds the memory of an upload
+    private static final int READ_AHEAD_BUFFERS = 16;
+
+    // size of the pipe between the upload and the parser
+    private static final int PIPE_BYTES = 64 * 1024;
+
+    private final CouponImportService couponImportService;
+
+    private final Scheduler jdbcScheduler;
+
+    public CouponImportResource(final CouponImportService couponImportService,
+                                @Qualifier("jdbcScheduler") final Scheduler jdbcScheduler) {
+        this.couponImportService = couponImportService;
+        this.jdbcScheduler = jdbcScheduler;
+    }
+
+    /**
+     * Imports the coupons of an NDJSON or CSV upload while it is still being received.
+     *
+     * @param contentType the format of the upload
+     * @param body        the upload, one coupon per line
+     * @return The import report with the number of imported coupons and the rejected rows
+     */
+    @Operation(summary = "Imports coupons from an NDJSON or CSV file, reporting rejected rows - Version 1")
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" })
+    public Mono<ImportReport> importCoupons(
+        @RequestHeader(HttpHeaders.CONTENT_TYPE) final MediaType contentType,
+        @Parameter(description = "One coupon per line, CSV files start with a header line", required = true)
+        @RequestBody final Flux<DataBuffer> body) {
+
+        final ImportFormat format = ImportFormat.fromMediaType(contentType);
+        log.info("Starting {} coupon import", format);
+
+        // the import blocks on both the upload and JDBC, so it runs on a jdbc worker and not on the event loop
+        return Mono.fromCallable(() -> importPiped(body, format)).subscribeOn(jdbcScheduler);
+    }
+
+    // the upload is written into a pipe by a worker of its own while the calling thread parses and inserts,
+    // the pipe and the read-ahead bound the memory of an upload of any size
+    private ImportReport importPiped(final Flux<DataBuffer> body, final ImportFormat format) throws IOException {
+        final PipedOutputStream output = new PipedOutputStream();
+        final AtomicReference<Throwable> uploadError = new AtomicReference<>();
+
+        try (InputStream input = new PipedInputStream(output, PIPE_BYTES)) {
+            final Disposable upload = DataBufferUtils.write(body.publishOn(Schedulers.boundedElastic(), READ_AHEAD_BUFFERS), output)
+                // closing the pipe is the end of file for the parser, also when the upload failed
+                .doFinally(signal -> closeQuietly(output))
+                .subscribe(DataBufferUtils.releaseConsumer(), uploadError::set);
+            try {
+                final ImportReport report = couponImportService.importCoupons(input, format);
+                if (uploadError.get() != null) {
+                    // the rows received before the failure are imported, but the client must not take this as complete
+                    throw new IOException("Upload failed after " + report.getRowsRead() + " rows", uploadError.get());
+                }
+                return report;
+            } finally {
+                upload.dispose();
+            }
+        }
+    }
+
+    private static void closeQuietly(final PipedOutputStream output) {
+        try {
+            output.close();
+        } catch (IOException e) {
+            log.debug("Closing the import pipe failed", e);
+        }
+    }
+}
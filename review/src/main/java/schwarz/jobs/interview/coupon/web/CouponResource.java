@@ -2,26 +2,47 @@ package schwarz.jobs.interview.coupon.web;
 
 
 import java.util.List;
-import java.util.Optional;
 
-import javax.validation.Valid;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.domain.CouponCodes;
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
 import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.ReactiveCouponService;
+import schwarz.jobs.interview.coupon.core.services.admission.AdmissionControl;
+import schwarz.jobs.interview.coupon.core.services.admission.AdmissionControl.Endpoint;
+import schwarz.jobs.interview.coupon.core.services.idempotency.IdempotencyStore;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationResult;
 import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.StackingResult;
 import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.BatchApplicationRequestDTO;
 import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponPageDTO;
 import schwarz.jobs.interview.coupon.web.dto.CouponRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.StackedApplicationRequestDTO;
 
 // @Controller
 @RestController // this controller is primarily serving RESTful endpoints, so it's better to use
@@ -29,42 +50,99 @@ import schwarz.jobs.interview.coupon.web.dto.CouponRequestDTO;
 @RequiredArgsConstructor
 @RequestMapping("/api/v1") // we can use a version to further maintnainability
 @Slf4j
-@Api(tags = "Coupon Managment API") // adds a description for the controller in Swagger UI
+@Tag(name = "Coupon Managment API") // adds a description for the controller in Swagger UI
 public class CouponResource {
 
-    private final CouponService couponService;
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final ReactiveCouponService couponService;
+
+    private final IdempotencyStore idempotencyStore;
+
+    private final AdmissionControl admissionControl;
 
     /**
      * Applies a coupon to the basket and returns the updated basket.
      *
      * @param applicationRequestDTO containing basket and coupon code
-     * @return ResponseEntity containing the updated basket
+     * @param idempotencyKey optional key of the request, retries with the same key return the stored result
+     * @return ResponseEntity containing the updated basket, 409 with the rejection reason if the coupon can't be applied,
+     *         503 if the service is overloaded
      */
-    @ApiOperation(value = "Applies currently active promotions and coupons from the request to the requested Basket - Version 1")
+    @Operation(summary = "Applies currently active promotions and coupons from the request to the requested Basket - Version 1")
     @PostMapping(value = "/apply")
-    public ResponseEntity<Basket> apply(
-        @ApiParam(value = "Provides the necessary basket and customer information required for the coupon application", required = true)
-        @RequestBody @Valid final ApplicationRequestDTO applicationRequestDTO) {
+    public Mono<ResponseEntity<Basket>> apply(
+        @Parameter(description = "Provides the necessary basket and customer information required for the coupon application", required = true)
+        @RequestBody @Valid final ApplicationRequestDTO applicationRequestDTO,
+        @Parameter(description = "Client generated key, retries with the same key replay the first result instead of applying the coupon again")
+        @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) final String idempotencyKey) {
 
-        log.info("Applying coupon");
+        log.debug("Applying coupon {}", applicationRequestDTO.getCode());
 
-        final Optional<Basket> basket =
-            couponService.apply(applicationRequestDTO.getBasket(), applicationRequestDTO.getCode());
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return applyCoupon(applicationRequestDTO);
+        }
+        // the same key must not be reused for another code or basket
+        final List<Object> fingerprint = List.of(CouponCodes.normalize(applicationRequestDTO.getCode()),
+            applicationRequestDTO.getBasket().getValue().stripTrailingZeros());
+        return idempotencyStore.execute(idempotencyKey, fingerprint, () -> applyCoupon(applicationRequestDTO));
+    }
 
-        if (basket.isEmpty()) {
-        	// we can add more details with logs to help us during debugging and tracking the requests
-        	log.warn("Coupon application failed: Basket not found for coupon code: {}", applicationRequestDTO.getCode());
-            return ResponseEntity.badRequest.build(); // it's better to return bad request, that indicates
-        } 											  // that the request couldn't be processed
+    // replayed idempotent results don't count against the limit, only actual applications do
+    private Mono<ResponseEntity<Basket>> applyCoupon(final ApplicationRequestDTO applicationRequestDTO) {
+
+        return admissionControl.admit(Endpoint.APPLY, couponService.apply(applicationRequestDTO.getBasket(), applicationRequestDTO.getCode()))
+            .map(basket -> {
+                if (!basket.isApplicationSuccessful()) {
+                    log.debug("Coupon application unsuccessful for code: {}, reason: {}",
+                        applicationRequestDTO.getCode(), basket.getRejectionReason());
+                    // the basket carries the rejection reason, so the client knows why
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(basket);
+                }
+
+                return ResponseEntity.ok().body(basket);
+            })
+            // it's better to return bad request, that indicates that the request couldn't be processed
+            .defaultIfEmpty(ResponseEntity.badRequest().build());
+    }
 
-        if (!applicationRequestDTO.getBasket().isApplicationSuccessful()) {
-            log.warn("Coupon application unsuccessful for code: {}", applicationRequestDTO.getCode());
-            return ResponseEntity.status(HttpStatus.CONFLICT).build();
-        }
+    /**
+     * Applies coupons to many baskets in one request.
+     *
+     * @param batchApplicationRequestDTO containing the basket and coupon code pairs
+     * @return One result per item, each with its own status, in request order
+     */
+    @Operation(summary = "Applies coupons to a batch of baskets, reporting the outcome per basket - Version 1")
+    @PostMapping(value = "/apply/batch")
+    public Mono<ResponseEntity<List<ApplicationResult>>> applyBatch(
+        @Parameter(description = "The basket and coupon code pairs to evaluate", required = true)
+        @RequestBody @Valid final BatchApplicationRequestDTO batchApplicationRequestDTO) {
 
-        log.info("Applied coupon");
+        log.debug("Applying coupons to {} baskets", batchApplicationRequestDTO.getItems().size());
 
-        return ResponseEntity.ok().body(applicationRequestDTO.getBasket());
+        return admissionControl.admit(Endpoint.APPLY, couponService.applyAll(batchApplicationRequestDTO.getItems()))
+            .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Applies the best combination of several coupons to the basket.
+     *
+     * @param stackedApplicationRequestDTO containing basket and coupon codes
+     * @return ResponseEntity containing the updated basket and the applied codes, 409 if no coupon can be applied
+     */
+    @Operation(summary = "Applies the best valid combination of the requested coupons to the requested Basket - Version 1")
+    @PostMapping(value = "/apply/stack")
+    public Mono<ResponseEntity<StackingResult>> applyStacked(
+        @Parameter(description = "The basket and the coupon codes to combine", required = true)
+        @RequestBody @Valid final StackedApplicationRequestDTO stackedApplicationRequestDTO) {
+
+        log.debug("Applying coupons {}", stackedApplicationRequestDTO.getCodes());
+
+        return admissionControl.admit(Endpoint.APPLY,
+                couponService.applyStacked(stackedApplicationRequestDTO.getBasket(), stackedApplicationRequestDTO.getCodes()))
+            .map(result -> result.getBasket().isApplicationSuccessful()
+                ? ResponseEntity.ok(result)
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(result));
     }
 
     /**
@@ -75,32 +153,65 @@ public class CouponResource {
      */
     // It's better to return a 201 Created response when a resource is created, with the new location
     // indicated in the URI
-    @ApiOperation(value = "Create a new coupon")
+    @Operation(summary = "Create a new coupon")
     @PostMapping("/create")
-    public ResponseEntity<Void> create(@RequestBody @Valid final CouponDTO couponDTO) {
-
-        final Coupon coupon = couponService.createCoupon(couponDTO);
-        
-        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
-                .path("/{id}")
-                .buildAndExpand(coupon.getId())
-                .toUri();
-
-        return ResponseEntity.created(location).build();
+    public Mono<ResponseEntity<Void>> create(@RequestBody @Valid final CouponDTO couponDTO,
+                                             final UriComponentsBuilder uriComponentsBuilder) {
+
+        return admissionControl.admit(Endpoint.CREATE, couponService.createCoupon(couponDTO))
+            .map(coupon -> ResponseEntity.created(uriComponentsBuilder
+                    .path("/api/v1/coupons")
+                    .queryParam("code", "{code}")
+                    .buildAndExpand(coupon.getCode())
+                    .encode()
+                    .toUri())
+                .build());
     }
 
     /**
-     * Gets a list of coupons based on the provided parametro.
+     * Gets the coupons for the requested codes, resolved with a single bulk lookup.
      *
-     * @param The parametro
-     * @return List of coupons
+     * @param codes The coupon codes, e.g. /coupons?code=test1&code=test2
+     * @return List of coupons, in the order of the requested codes
      */
     // Get requests shouldn't have a body, the typical approach for providing parameters 
     // is to use query paramters, e.g. /coupons?coupon=1093
-    @ApiOperation(value = "Get a list of coupons")
-    @GetMapping("/coupons")
-    public List<Coupon> getCoupons(@RequestParam(required = false) String parametro) {
+    @Operation(summary = "Get a list of coupons")
+    @GetMapping(value = "/coupons", params = "code")
+    public Mono<List<Coupon>> getCoupons(@RequestParam("code") final List<String> codes) {
+
+        // collected, so the response can also be encoded as CBOR, the number of codes is bounded by the request anyway
+        return couponService.getCoupons(CouponRequestDTO.builder().codes(codes).build()).collectList();
+    }
+
+    /**
+     * Lists all coupons page by page, e.g. /coupons?limit=100, then /coupons?after={nextCursor}&limit=100
+     *
+     * @param after The nextCursor of the previous page, 0 for the first page
+     * @param limit The page size
+     * @return One page of coupons, ordered by id
+     */
+    // keyset pagination seeks on the primary key, so deep pages are as cheap as the first one
+    @Operation(summary = "List all coupons with cursor pagination")
+    @GetMapping(value = "/coupons", params = "!code")
+    public Mono<CouponPageDTO> listCoupons(
+        @Parameter(description = "The nextCursor of the previous page")
+        @RequestParam(value = "after", defaultValue = "0") @Min(0) final long after,
+        @Parameter(description = "The page size, at most " + CouponService.MAX_PAGE_SIZE)
+        @RequestParam(value = "limit", defaultValue = "100") @Min(1) @Max(CouponService.MAX_PAGE_SIZE) final int limit) {
+
+        return couponService.getCouponPage(after, limit);
+    }
+
+    /**
+     * Exports all coupons as newline delimited JSON, written while they are read from the database.
+     *
+     * @return All coupons, ordered by id within each shard
+     */
+    @Operation(summary = "Export all coupons as NDJSON stream")
+    @GetMapping(value = "/coupons/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CouponView> exportCoupons() {
 
-        return couponService.getCoupons(parametro);
+        return couponService.exportCoupons();
     }
 }
@@ -1,14 +1,19 @@
 package schwarz.jobs.interview.coupon.web.dto;
 
-import javax.validation.constraints.NotBlank;
-import javax.validation.constraints.NotNull;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import schwarz.jobs.interview.coupon.core.services.model.Basket;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class ApplicationRequestDTO {
 	// it's a good practice to use JavaDocs
 	
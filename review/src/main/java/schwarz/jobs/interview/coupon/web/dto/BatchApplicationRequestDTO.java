@@ -0,0 +1,30 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchApplicationRequestDTO {
+
+    public static final int MAX_ITEMS = 10_000;
+
+	/**
+	 * The basket and coupon code pairs to evaluate.
+	 * Must contain between 1 and {@value #MAX_ITEMS} items.
+	 */
+    @NotEmpty
+    @Size(max = BatchApplicationRequestDTO.MAX_ITEMS)
+    private List<@NotNull @Valid ApplicationRequestDTO> items;
+}
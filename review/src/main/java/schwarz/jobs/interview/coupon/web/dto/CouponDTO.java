@@ -1,12 +1,25 @@
 package schwarz.jobs.interview.coupon.web.dto;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.domain.CouponCodes;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class CouponDTO {
 	// it's a good practice to use JavaDocs
 
@@ -16,6 +29,7 @@ public class CouponDTO {
 	 */
 	@NotNull // to ensure that the field is not null
 	@Positive // to ensure that is a non-negative number
+    @Digits(integer = 8, fraction = 2) // what the precision = 10, scale = 2 column can store
     private BigDecimal discount;
 
 	/**
@@ -29,8 +43,54 @@ public class CouponDTO {
 	 * This should be a positive number.
 	 */
     @Positive // to ensure that is a non-negative number
+    @Digits(integer = 8, fraction = 2)
     private BigDecimal minBasketValue;
 
+	/**
+	 * Start of the validity window, the coupon is valid immediately when empty.
+	 */
+    private Instant validFrom;
+
+	/**
+	 * End of the validity window (exclusive), the coupon never expires when empty.
+	 */
+    private Instant validUntil;
+
+	/**
+	 * How often the coupon may be redeemed in total, unlimited when empty.
+	 */
+    @Positive
+    private Long maxRedemptions;
+
+	/**
+	 * Whether the coupon may be combined with other coupons, true when empty.
+	 */
+    private Boolean stackable;
+
+	/**
+	 * Optional group of mutually exclusive coupons, at most one coupon per group is applied to a basket.
+	 */
+    @Size(max = 50)
+    private String stackingGroup;
+
+	/**
+	 * Maps the DTO to a new, not yet persisted coupon with a normalized code.
+	 *
+	 * @return The coupon.
+	 */
+	public Coupon toCoupon() {
+		return Coupon.builder()
+            .code(CouponCodes.normalize(code))
+            .discount(discount)
+            .minBasketValue(minBasketValue)
+            .validFrom(validFrom)
+            .validUntil(validUntil)
+            .maxRedemptions(maxRedemptions)
+            .stackable(stackable == null || stackable)
+            .stackingGroup(stackingGroup)
+            .build();
+	}
+
 	// Review: as I said in the Coupon class, we can use the Lombok Annotations as this class to reduce code
     // and avoid boilerplate or use the manual way to control the implementation.
 }
@@ -0,0 +1,26 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponPageDTO {
+
+	/**
+	 * The coupons of this page, ordered by id.
+	 */
+    private List<CouponView> items;
+
+	/**
+	 * Cursor for the next page, passed as {@code after}. Empty once the last page was returned.
+	 */
+    private Long nextCursor;
+}
@@ -2,7 +2,9 @@ package schwarz.jobs.interview.coupon.web.dto;
 
 import java.util.List;
 
-import javax.validation.constraints.NotNull;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import lombok.Builder;
 import lombok.Data;
@@ -0,0 +1,24 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class ErrorResponseDTO {
+
+	/**
+	 * Human readable description of the error.
+	 */
+    private String message;
+
+	/**
+	 * The requested coupon codes that do not exist, if any.
+	 */
+    private List<String> missingCodes;
+}
@@ -0,0 +1,39 @@
+package schwarz.jobs.interview.coupon.web.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.stacking.CouponStackingEngine;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StackedApplicationRequestDTO {
+
+	/**
+	 * The coupon codes to combine.
+	 * Must contain between 1 and {@value CouponStackingEngine#MAX_COUPONS} codes.
+	 */
+    @NotEmpty
+    @Size(max = CouponStackingEngine.MAX_COUPONS)
+    private List<@NotBlank String> codes;
+
+	/**
+	 * The user's basket.
+	 * This must be a non-null value and a valid one.
+	 */
+    @NotNull
+    @Valid
+    private Basket basket;
+}
@@ -0,0 +1,9 @@
+CREATE TABLE coupon (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  code VARCHAR(250) NOT NULL,
+  discount NUMBER(10,2) NOT NULL,
+  min_basket_value NUMBER(10,2) DEFAULT NULL,
+  CONSTRAINT ck_coupon_code_normalized CHECK (code = LOWER(TRIM(code)))
+);
+
+CREATE UNIQUE INDEX ux_coupon_code ON coupon (code);
@@ -0,0 +1,4 @@
+INSERT INTO coupon (code, discount, min_basket_value) VALUES
+    ('test1', 10.00, 50.00),
+    ('test2', 15.00, 100.00),
+    ('test3', 20.00, 200.00);
@@ -0,0 +1,2 @@
+ALTER TABLE coupon ADD COLUMN valid_from TIMESTAMP(6) WITH TIME ZONE DEFAULT NULL;
+ALTER TABLE coupon ADD COLUMN valid_until TIMESTAMP(6) WITH TIME ZONE DEFAULT NULL;
@@ -0,0 +1,2 @@
+ALTER TABLE coupon ADD COLUMN max_redemptions BIGINT DEFAULT NULL;
+ALTER TABLE coupon ADD COLUMN redemption_count BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,2 @@
+-- ids are allocated in blocks of 50 by Hibernate's pooled optimizer, which allows batched inserts
+CREATE SEQUENCE coupon_seq START WITH 1000 INCREMENT BY 50;
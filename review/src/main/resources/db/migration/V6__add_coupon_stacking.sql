@@ -0,0 +1,3 @@
+-- non-stackable coupons can only be applied on their own, at most one coupon per stacking group is applied
+ALTER TABLE coupon ADD COLUMN stackable BOOLEAN DEFAULT TRUE NOT NULL;
+ALTER TABLE coupon ADD COLUMN stacking_group VARCHAR(50);
@@ -0,0 +1,3 @@
+-- lets the discount snapshot pick up changed coupons without reading the whole table
+ALTER TABLE coupon ADD COLUMN updated_at TIMESTAMP(6) WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
+CREATE INDEX ix_coupon_updated_at ON coupon (updated_at);
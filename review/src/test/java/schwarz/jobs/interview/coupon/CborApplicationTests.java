@@ -0,0 +1,86 @@
+package schwarz.jobs.interview.coupon;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+class CborApplicationTests {
+
+    private final CBORMapper cborMapper = new CBORMapper();
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private CouponService couponService;
+
+    private ApplicationRequestDTO createRequest(String code) {
+        couponService.createCoupon(CouponDTO.builder()
+            .code(code)
+            .discount(new BigDecimal("10.25"))
+            .minBasketValue(new BigDecimal("50.00"))
+            .build());
+        return ApplicationRequestDTO.builder()
+            .code(code)
+            .basket(Basket.builder().value(new BigDecimal("100.00")).build())
+            .build();
+    }
+
+    @Test
+    void should_apply_coupons_sent_and_answered_as_cbor() throws Exception {
+        byte[] response = webTestClient.post().uri("/api/v1/apply")
+            .contentType(MediaType.APPLICATION_CBOR)
+            .accept(MediaType.APPLICATION_CBOR)
+            .bodyValue(cborMapper.writeValueAsBytes(createRequest("cbor-apply")))
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+        Basket basket = cborMapper.readValue(response, Basket.class);
+        assertThat(basket.isApplicationSuccessful()).isTrue();
+        // decimal fractions travel as unscaled value and scale, not as floating point
+        assertThat(basket.getAppliedDiscount()).isEqualTo(new BigDecimal("10.25"));
+        assertThat(basket.getValue()).isEqualTo(new BigDecimal("100.00"));
+    }
+
+    @Test
+    void should_keep_json_as_default() {
+        webTestClient.post().uri("/api/v1/apply")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(createRequest("json-apply"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+            .expectBody()
+            .jsonPath("$.appliedDiscount").isEqualTo(10.25);
+    }
+
+    @Test
+    void should_answer_invalid_json_requests_with_json_errors() {
+        webTestClient.post().uri("/api/v1/apply")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"code\":\" \"}")
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON);
+    }
+}
@@ -1,13 +1,36 @@
 package schwarz.jobs.interview.coupon;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
 
 @SpringBootTest
+@AutoConfigureWebTestClient
 class CouponApplicationTests {
 
+	@Autowired
+	private WebTestClient webTestClient;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void should_reject_coupons_with_more_decimal_places_than_stored() {
+		webTestClient.post().uri("/api/v1/create")
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue("{\"code\":\"precise\",\"discount\":10.255}")
+			.exchange()
+			.expectStatus().isBadRequest();
+
+		webTestClient.post().uri("/api/v1/create")
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue("{\"code\":\"precise\",\"discount\":10,\"minBasketValue\":50.001}")
+			.exchange()
+			.expectStatus().isBadRequest();
+	}
+
 }
@@ -0,0 +1,65 @@
+package schwarz.jobs.interview.coupon;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
+import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+import schwarz.jobs.interview.coupon.core.services.CouponService;
+import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponPageDTO;
+
+@SpringBootTest
+@ActiveProfiles("sharded")
+class ShardedCouponApplicationTests {
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CouponShards couponShards;
+
+    @Test
+    void should_store_coupons_on_their_shard_and_merge_pages_of_all_shards() {
+        List<Coupon> created = IntStream.range(0, 40)
+            .mapToObj(i -> couponService.createCoupon(CouponDTO.builder()
+                .code("sharded" + i)
+                .discount(BigDecimal.TEN)
+                .build()))
+            .collect(Collectors.toList());
+
+        assertThat(couponShards.count()).isEqualTo(4);
+        for (Coupon coupon : created) {
+            for (int shard = 0; shard < couponShards.count(); shard++) {
+                boolean stored = couponShards.onShard(shard, () -> couponRepository.findByCode(coupon.getCode())).isPresent();
+                assertThat(stored).as("%s stored on shard %d", coupon.getCode(), shard)
+                    .isEqualTo(shard == couponShards.shardOf(coupon.getCode()));
+            }
+        }
+
+        List<Long> pagedIds = new ArrayList<>();
+        Long cursor = 0L;
+        while (cursor != null) {
+            CouponPageDTO page = couponService.getCouponPage(cursor, 7);
+            page.getItems().stream().map(CouponView::getId).forEach(pagedIds::add);
+            cursor = page.getNextCursor();
+        }
+        assertThat(pagedIds).isSorted().doesNotHaveDuplicates()
+            .containsAll(created.stream().map(Coupon::getId).collect(Collectors.toList()));
+    }
+}
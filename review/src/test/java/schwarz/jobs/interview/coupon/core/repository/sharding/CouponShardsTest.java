@@ -0,0 +1,83 @@
+package schwarz.jobs.interview.coupon.core.repository.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class CouponShardsTest {
+
+    private final CouponShards couponShards = CouponShards.of(4);
+
+    @AfterEach
+    public void tearDown() {
+        couponShards.close();
+    }
+
+    @Test
+    public void should_place_codes_by_their_normalized_form() {
+        assertThat(couponShards.shardOf(" Summer ")).isEqualTo(couponShards.shardOf("summer"));
+        assertThat(CouponShards.shardOf("anything", 1)).isZero();
+    }
+
+    @Test
+    public void should_spread_codes_evenly() {
+        Map<Integer, Long> perShard = IntStream.range(0, 100_000)
+            .mapToObj(i -> "code-" + i)
+            .collect(Collectors.groupingBy(couponShards::shardOf, Collectors.counting()));
+
+        assertThat(perShard).hasSize(4);
+        assertThat(perShard.values()).allSatisfy(codes -> assertThat(codes).isBetween(24_000L, 26_000L));
+    }
+
+    @Test
+    public void should_run_each_group_on_the_shard_owning_its_codes() {
+        List<String> codes = IntStream.range(0, 100).mapToObj(i -> "code-" + i).collect(Collectors.toList());
+
+        List<String> routed = couponShards.onShardsOf(codes, Function.identity(), group -> group.stream()
+            .map(code -> code + "@" + CouponShards.currentShard())
+            .collect(Collectors.toList()));
+
+        assertThat(routed).hasSize(100).allSatisfy(entry -> {
+            String[] parts = entry.split("@");
+            assertThat(Integer.parseInt(parts[1])).isEqualTo(couponShards.shardOf(parts[0]));
+        });
+        assertThat(CouponShards.currentShard()).isNull();
+    }
+
+    @Test
+    public void should_return_results_of_every_shard_in_shard_order() {
+        assertThat(couponShards.onEachShard(CouponShards::currentShard)).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    public void should_run_groups_one_after_the_other_on_the_calling_thread() {
+        List<Integer> visited = new ArrayList<>();
+        Thread caller = Thread.currentThread();
+
+        couponShards.forEachShardGroup(List.of("a", "b", "c", "d", "e", "f"), Function.identity(), group -> {
+            assertThat(Thread.currentThread()).isSameAs(caller);
+            visited.add(CouponShards.currentShard());
+        });
+
+        assertThat(visited).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void should_rethrow_the_failure_of_a_shard() {
+        assertThatThrownBy(() -> couponShards.onEachShard(() -> {
+            if (CouponShards.currentShard() == 2) {
+                throw new IllegalStateException("shard 2 is down");
+            }
+            return true;
+        })).isInstanceOf(IllegalStateException.class).hasMessage("shard 2 is down");
+    }
+}
@@ -3,11 +3,16 @@ package schwarz.jobs.interview.coupon.core.services;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -16,12 +21,34 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
+import schwarz.jobs.interview.coupon.core.repository.CouponExportRepository;
 import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCache;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCacheProperties;
+import schwarz.jobs.interview.coupon.core.services.exception.CouponNotFoundException;
+import schwarz.jobs.interview.coupon.core.services.filter.CouponCodeFilterStore;
+import schwarz.jobs.interview.coupon.core.services.journal.ApplicationJournal;
+import schwarz.jobs.interview.coupon.core.services.metrics.CouponMetrics;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationResult;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationStatus;
 import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+import schwarz.jobs.interview.coupon.core.services.model.StackingResult;
+import schwarz.jobs.interview.coupon.core.services.redemption.RedemptionLedger;
+import schwarz.jobs.interview.coupon.core.services.rules.CouponRuleEngine;
+import schwarz.jobs.interview.coupon.core.services.snapshot.CouponSnapshotStore;
+import schwarz.jobs.interview.coupon.core.services.stacking.CouponStackingEngine;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
 import schwarz.jobs.interview.coupon.web.dto.CouponDTO;
+import schwarz.jobs.interview.coupon.web.dto.CouponPageDTO;
 import schwarz.jobs.interview.coupon.web.dto.CouponRequestDTO;
 
 @ExtendWith(SpringExtension.class)
@@ -32,6 +59,40 @@ public class CouponServiceTest {
 
     @Mock
     private CouponRepository couponRepository;
+
+    @Spy
+    private CouponShards couponShards = CouponShards.single();
+
+    @Mock
+    private CouponExportRepository couponExportRepository;
+
+    @Spy
+    private CouponCache couponCache = new CouponCache(new CouponCacheProperties());
+
+    @Spy
+    private CouponSnapshotStore couponSnapshotStore = new CouponSnapshotStore(Clock.systemUTC());
+
+    @Spy
+    private CouponCodeFilterStore couponCodeFilterStore = new CouponCodeFilterStore();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private CouponMetrics couponMetrics = new CouponMetrics(meterRegistry);
+
+    @Spy
+    private ApplicationJournal applicationJournal = ApplicationJournal.disabled();
+
+    private final Instant now = Instant.parse("2024-06-01T12:00:00Z");
+
+    @Spy
+    private CouponRuleEngine couponRuleEngine = new CouponRuleEngine(Clock.fixed(now, ZoneOffset.UTC));
+
+    @Spy
+    private RedemptionLedger redemptionLedger = new RedemptionLedger();
+
+    @Spy
+    private CouponStackingEngine couponStackingEngine = new CouponStackingEngine(couponRuleEngine);
     
     // Methods to avoid repetitive code in tests
     private Coupon createCoupon(String code, BigDecimal discount, BigDecimal minBasketValue) {
@@ -56,10 +117,38 @@ public class CouponServiceTest {
             .minBasketValue(BigDecimal.valueOf(50))
             .build();
 
+        when(couponRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
         couponService.createCoupon(dto);
 
         verify(couponRepository, times(1)).save(any());
     }
+
+    @Test
+    public void should_serve_created_coupon_from_cache() {
+        CouponDTO dto = CouponDTO.builder()
+            .code("ABC")
+            .discount(BigDecimal.TEN)
+            .minBasketValue(BigDecimal.valueOf(50))
+            .build();
+
+        when(couponRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        couponService.createCoupon(dto);
+
+        assertThat(couponService.getCoupon("abc")).hasValueSatisfying(c -> assertThat(c.getCode()).isEqualTo("abc"));
+        verify(couponRepository, never()).findByCode(any());
+    }
+
+    @Test
+    public void should_load_coupon_from_repository_only_once() {
+        when(couponRepository.findByCode("1111")).thenReturn(Optional.of(createCoupon("1111", BigDecimal.TEN, BigDecimal.valueOf(50))));
+
+        couponService.apply(createBasket(BigDecimal.valueOf(100)), "1111");
+        couponService.apply(createBasket(BigDecimal.valueOf(100)), " 1111 ");
+
+        verify(couponRepository, times(1)).findByCode("1111");
+    }
     
     // I separated the tests with more descriptive method names, also for catch errors more easly
     @Test
@@ -76,6 +165,20 @@ public class CouponServiceTest {
         });
     }
 
+    @Test
+    public void should_journal_every_application() {
+        Basket basket = createBasket(BigDecimal.valueOf(100));
+
+        when(couponRepository.findByCode("1111")).thenReturn(Optional.of(createCoupon("1111", BigDecimal.TEN, BigDecimal.valueOf(50))));
+
+        couponService.apply(basket, "1111");
+        assertThatThrownBy(() -> couponService.apply(createBasket(BigDecimal.valueOf(100)), "2222"))
+            .isInstanceOf(CouponNotFoundException.class);
+
+        verify(applicationJournal).record("1111", basket, ApplicationStatus.APPLIED);
+        verify(applicationJournal).record(eq("2222"), any(), eq(ApplicationStatus.UNKNOWN_CODE));
+    }
+
     @Test
     public void should_return_same_basket_when_value_is_zero() {
         Basket basket = createBasket(BigDecimal.valueOf(0));
@@ -99,6 +202,77 @@ public class CouponServiceTest {
             .hasMessage("Can't apply negative discounts");
     }
 
+    @Test
+    public void should_reject_basket_below_min_basket_value() {
+        Basket basket = createBasket(BigDecimal.valueOf(49.99));
+
+        when(couponRepository.findByCode("1111")).thenReturn(Optional.of(createCoupon("1111", BigDecimal.TEN, BigDecimal.valueOf(50))));
+
+        Optional<Basket> result = couponService.apply(basket, "1111");
+
+        assertThat(result).hasValueSatisfying(b -> {
+            assertThat(b.isApplicationSuccessful()).isFalse();
+            assertThat(b.getAppliedDiscount()).isEqualTo(BigDecimal.ZERO);
+            assertThat(b.getRejectionReason()).isEqualTo(RejectionReason.BELOW_MIN_BASKET_VALUE);
+        });
+    }
+
+    @Test
+    public void should_reject_coupon_outside_validity_window() {
+        Coupon expired = createCoupon("1111", BigDecimal.TEN, null);
+        expired.setValidUntil(now);
+        Coupon upcoming = createCoupon("2222", BigDecimal.TEN, null);
+        upcoming.setValidFrom(now.plusSeconds(1));
+
+        when(couponRepository.findByCode("1111")).thenReturn(Optional.of(expired));
+        when(couponRepository.findByCode("2222")).thenReturn(Optional.of(upcoming));
+
+        assertThat(couponService.apply(createBasket(BigDecimal.valueOf(100)), "1111"))
+            .hasValueSatisfying(b -> assertThat(b.getRejectionReason()).isEqualTo(RejectionReason.EXPIRED));
+        assertThat(couponService.apply(createBasket(BigDecimal.valueOf(100)), "2222"))
+            .hasValueSatisfying(b -> assertThat(b.getRejectionReason()).isEqualTo(RejectionReason.NOT_YET_VALID));
+    }
+
+    @Test
+    public void should_reject_coupon_when_usage_limit_is_reached() {
+        Coupon limited = createCoupon("1111", BigDecimal.TEN, null);
+        limited.setId(1L);
+        limited.setMaxRedemptions(1L);
+
+        when(couponRepository.findByCode("1111")).thenReturn(Optional.of(limited));
+
+        assertThat(couponService.apply(createBasket(BigDecimal.valueOf(100)), "1111"))
+            .hasValueSatisfying(b -> assertThat(b.isApplicationSuccessful()).isTrue());
+        assertThat(couponService.apply(createBasket(BigDecimal.valueOf(100)), "1111"))
+            .hasValueSatisfying(b -> assertThat(b.getRejectionReason()).isEqualTo(RejectionReason.USAGE_LIMIT_REACHED));
+    }
+
+    @Test
+    public void should_count_application_outcomes() {
+        when(couponRepository.findByCode("1111")).thenReturn(Optional.of(createCoupon("1111", BigDecimal.TEN, BigDecimal.valueOf(50))));
+
+        couponService.apply(createBasket(BigDecimal.valueOf(100)), "1111");
+        couponService.apply(createBasket(BigDecimal.ZERO), "1111");
+        assertThatThrownBy(() -> couponService.apply(createBasket(BigDecimal.valueOf(100)), "2222"))
+            .isInstanceOf(CouponNotFoundException.class);
+
+        assertThat(meterRegistry.counter("coupon.apply", "outcome", "applied").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("coupon.apply", "outcome", "not_applied").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("coupon.apply", "outcome", "unknown_code").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_measure_time_to_first_applied_coupon() {
+        couponMetrics.bindTo(meterRegistry);
+        when(couponRepository.findByCode("1111")).thenReturn(Optional.of(createCoupon("1111", BigDecimal.TEN, BigDecimal.valueOf(50))));
+
+        couponService.apply(createBasket(BigDecimal.ZERO), "1111");
+        assertThat(meterRegistry.get("coupon.startup.time-to-first-apply").gauge().value()).isNaN();
+
+        couponService.apply(createBasket(BigDecimal.valueOf(100)), "1111");
+        assertThat(meterRegistry.get("coupon.startup.time-to-first-apply").gauge().value()).isPositive();
+    }
+
 //    @Test
 //    public void test_apply_coupon_method() {
 //
@@ -144,18 +318,103 @@ public class CouponServiceTest {
     public void should_return_list_of_coupons_when_valid_codes_are_given() {
 
         CouponRequestDTO dto = CouponRequestDTO.builder()
-            .codes(Arrays.asList("1111", "1234"))
+            .codes(Arrays.asList("1234", "1111"))
             .build();
 
-        when(couponRepository.findByCode("1111"))
-        		.thenReturn(Optional.of(createCoupon("1111", BigDecimal.TEN, BigDecimal.valueOf(50))));
-        when(couponRepository.findByCode("1234"))
-        		.thenReturn(Optional.of(createCoupon("1234", BigDecimal.TEN, BigDecimal.valueOf(50))));
+        when(couponRepository.findByCodeIn(any()))
+        		.thenReturn(Arrays.asList(
+        				createCoupon("1111", BigDecimal.TEN, BigDecimal.valueOf(50)),
+        				createCoupon("1234", BigDecimal.TEN, BigDecimal.valueOf(50))));
 
 
         List<Coupon> returnedCoupons = couponService.getCoupons(dto);
 
-        assertThat(returnedCoupons.get(0).getCode()).isEqualTo("1111");
-        assertThat(returnedCoupons.get(1).getCode()).isEqualTo("1234");
+        assertThat(returnedCoupons.get(0).getCode()).isEqualTo("1234");
+        assertThat(returnedCoupons.get(1).getCode()).isEqualTo("1111");
+        verify(couponRepository, times(1)).findByCodeIn(any());
+        verify(couponRepository, never()).findByCode(any());
+    }
+
+    @Test
+    public void should_report_all_missing_codes() {
+
+        CouponRequestDTO dto = CouponRequestDTO.builder()
+            .codes(Arrays.asList("1111", "2222", "3333"))
+            .build();
+
+        when(couponRepository.findByCodeIn(any()))
+        		.thenReturn(List.of(createCoupon("1111", BigDecimal.TEN, BigDecimal.valueOf(50))));
+
+        assertThatThrownBy(() -> couponService.getCoupons(dto))
+            .isInstanceOf(CouponNotFoundException.class)
+            .satisfies(e -> assertThat(((CouponNotFoundException) e).getMissingCodes()).containsExactly("2222", "3333"));
+    }
+
+    @Test
+    public void should_apply_batch_with_one_lookup_and_per_item_status() {
+
+        when(couponRepository.findByCodeIn(any()))
+        		.thenReturn(List.of(createCoupon("1111", BigDecimal.TEN, BigDecimal.valueOf(50))));
+
+        List<ApplicationResult> results = couponService.applyAll(Arrays.asList(
+            ApplicationRequestDTO.builder().code("1111").basket(createBasket(BigDecimal.valueOf(100))).build(),
+            ApplicationRequestDTO.builder().code("9999").basket(createBasket(BigDecimal.valueOf(100))).build(),
+            ApplicationRequestDTO.builder().code("1111").basket(createBasket(BigDecimal.valueOf(-1))).build(),
+            ApplicationRequestDTO.builder().code("1111").basket(createBasket(BigDecimal.ZERO)).build()));
+
+        assertThat(results).extracting(ApplicationResult::getStatus).containsExactly(
+            ApplicationStatus.APPLIED, ApplicationStatus.UNKNOWN_CODE, ApplicationStatus.INVALID_BASKET, ApplicationStatus.NOT_APPLIED);
+        assertThat(results.get(0).getBasket().getAppliedDiscount()).isEqualTo(BigDecimal.TEN);
+        verify(couponRepository, times(1)).findByCodeIn(any());
+    }
+
+    @Test
+    public void should_return_cursor_of_full_page() {
+
+        when(couponRepository.findPageAfter(eq(0L), eq(Limit.of(2))))
+        		.thenReturn(List.of(CouponView.builder().id(1L).code("1111").build(),
+        		    CouponView.builder().id(5L).code("2222").build()));
+
+        CouponPageDTO page = couponService.getCouponPage(0, 2);
+
+        assertThat(page.getItems()).extracting(CouponView::getCode).containsExactly("1111", "2222");
+        assertThat(page.getNextCursor()).isEqualTo(5L);
+    }
+
+    @Test
+    public void should_end_listing_with_short_page() {
+
+        when(couponRepository.findPageAfter(eq(5L), eq(Limit.of(2))))
+        		.thenReturn(List.of(CouponView.builder().id(7L).code("3333").build()));
+
+        CouponPageDTO page = couponService.getCouponPage(5, 2);
+
+        assertThat(page.getItems()).hasSize(1);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void should_retry_stacking_without_exhausted_coupon() {
+
+        Coupon limited = createCoupon("limited", BigDecimal.valueOf(30), null);
+        limited.setId(1L);
+        limited.setMaxRedemptions(1L);
+        limited.setRedemptionCount(1);
+        Coupon small = createCoupon("small", BigDecimal.valueOf(5), null);
+        small.setId(2L);
+        Coupon medium = createCoupon("medium", BigDecimal.valueOf(10), null);
+        medium.setId(3L);
+        when(couponRepository.findByCodeIn(any())).thenReturn(List.of(limited, small, medium));
+
+        StackingResult result = couponService.applyStacked(createBasket(BigDecimal.valueOf(100)),
+            Arrays.asList("small", "LIMITED", "medium", "unknown"));
+
+        assertThat(result.getAppliedCodes()).containsExactlyInAnyOrder("small", "medium");
+        assertThat(result.getBasket().getAppliedDiscount()).isEqualByComparingTo(BigDecimal.valueOf(15));
+        assertThat(result.getRejectedCodes())
+            .containsEntry("limited", RejectionReason.USAGE_LIMIT_REACHED)
+            .containsEntry("unknown", RejectionReason.UNKNOWN_CODE);
+        // the first selection included the limited coupon, the two redeemed before it are given back
+        verify(redemptionLedger, times(2)).release(any());
     }
 }
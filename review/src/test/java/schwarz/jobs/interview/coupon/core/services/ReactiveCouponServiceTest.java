@@ -0,0 +1,73 @@
+package schwarz.jobs.interview.coupon.core.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationResult;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.web.dto.ApplicationRequestDTO;
+
+public class ReactiveCouponServiceTest {
+
+    private final CouponService couponService = mock(CouponService.class);
+
+    private final Scheduler batchScheduler = Schedulers.newParallel("test-batch", 4);
+
+    @SuppressWarnings("unchecked")
+    private final ReactiveCouponService reactiveCouponService = new ReactiveCouponService(couponService,
+        Schedulers.immediate(), batchScheduler, mock(ObjectProvider.class));
+
+    @AfterEach
+    public void tearDown() {
+        batchScheduler.dispose();
+    }
+
+    @Test
+    public void should_evaluate_large_batches_in_chunks_and_keep_request_order() {
+        List<ApplicationRequestDTO> requests = IntStream.range(0, 3 * ReactiveCouponService.BATCH_CHUNK_SIZE - 1)
+            .mapToObj(i -> ApplicationRequestDTO.builder().code("code" + i).basket(Basket.builder().value(BigDecimal.TEN).build()).build())
+            .collect(Collectors.toList());
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        when(couponService.findCoupons(anyList())).thenReturn(Map.of());
+        when(couponService.applyItems(anyList(), anyInt(), anyInt(), anyMap())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            int from = invocation.getArgument(1);
+            int to = invocation.getArgument(2);
+            // later chunks finish first, the results must still come back in request order
+            Thread.sleep(10L * (3 - from / ReactiveCouponService.BATCH_CHUNK_SIZE));
+            return IntStream.range(from, to)
+                .mapToObj(index -> ApplicationResult.builder().index(index).build())
+                .collect(Collectors.toList());
+        });
+
+        List<ApplicationResult> results = reactiveCouponService.applyAll(requests).block(Duration.ofSeconds(5));
+
+        assertThat(results).extracting(ApplicationResult::getIndex)
+            .containsExactlyElementsOf(IntStream.range(0, requests.size()).boxed().collect(Collectors.toList()));
+        verify(couponService, times(1)).findCoupons(any());
+        verify(couponService, times(3)).applyItems(anyList(), anyInt(), anyInt(), anyMap());
+        assertThat(threads).allMatch(name -> name.startsWith("test-batch"));
+    }
+}
@@ -0,0 +1,111 @@
+package schwarz.jobs.interview.coupon.core.services.admission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import schwarz.jobs.interview.coupon.core.services.exception.AdmissionRejectedException;
+
+public class ConcurrencyLimiterTest {
+
+    private AdmissionProperties.EndpointLimit fixedLimit(int limit, int queueCapacity) {
+        AdmissionProperties.EndpointLimit properties = new AdmissionProperties.EndpointLimit();
+        properties.setInitialLimit(limit);
+        properties.setMinLimit(limit);
+        properties.setMaxLimit(limit);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setMaxQueueWait(Duration.ofSeconds(5));
+        return properties;
+    }
+
+    @Test
+    public void should_queue_requests_over_the_limit_until_a_slot_is_free() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("apply", fixedLimit(1, 10), Schedulers.parallel());
+        Sinks.One<String> first = Sinks.one();
+
+        CompletableFuture<String> firstResult = limiter.admit(first.asMono()).toFuture();
+        CompletableFuture<String> secondResult = limiter.admit(Mono.just("second")).toFuture();
+
+        assertThat(limiter.inFlight()).isEqualTo(1);
+        assertThat(limiter.queued()).isEqualTo(1);
+        assertThat(secondResult).isNotDone();
+
+        first.tryEmitValue("first");
+
+        assertThat(firstResult.get(1, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(secondResult.get(1, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(limiter.inFlight()).isZero();
+        assertThat(limiter.queued()).isZero();
+    }
+
+    @Test
+    public void should_reject_right_away_when_the_queue_is_full() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("apply", fixedLimit(1, 0), Schedulers.parallel());
+
+        limiter.admit(Mono.never()).subscribe();
+
+        assertThatThrownBy(() -> limiter.admit(Mono.just("rejected")).block())
+            .isInstanceOf(AdmissionRejectedException.class);
+        assertThat(limiter.rejectedQueueFull()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_reject_queued_requests_after_their_deadline() {
+        AdmissionProperties.EndpointLimit properties = fixedLimit(1, 10);
+        properties.setMaxQueueWait(Duration.ofMillis(20));
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("apply", properties, Schedulers.parallel());
+
+        limiter.admit(Mono.never()).subscribe();
+
+        assertThatThrownBy(() -> limiter.admit(Mono.just("late")).block(Duration.ofSeconds(1)))
+            .isInstanceOf(AdmissionRejectedException.class);
+        assertThat(limiter.rejectedTimeout()).isEqualTo(1);
+        assertThat(limiter.queued()).isZero();
+    }
+
+    @Test
+    public void should_free_the_slot_of_a_cancelled_request() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("apply", fixedLimit(1, 10), Schedulers.parallel());
+
+        limiter.admit(Mono.never()).subscribe().dispose();
+
+        assertThat(limiter.inFlight()).isZero();
+        assertThat(limiter.admit(Mono.just("next")).block(Duration.ofSeconds(1))).isEqualTo("next");
+    }
+
+    @Test
+    public void should_back_off_on_slow_requests_and_grow_while_saturated() {
+        AdmissionProperties.EndpointLimit properties = new AdmissionProperties.EndpointLimit();
+        properties.setInitialLimit(100);
+        properties.setLatencyThreshold(Duration.ofSeconds(1));
+        AimdLimit limit = new AimdLimit(properties);
+        long slow = Duration.ofSeconds(2).toNanos();
+        long fast = Duration.ofMillis(10).toNanos();
+
+        limit.onSample(slow, 100);
+        assertThat(limit.get()).isEqualTo(90);
+
+        // the rest of the burst was admitted under the old limit, it doesn't back off again
+        limit.onSample(slow, 99);
+        assertThat(limit.get()).isEqualTo(90);
+
+        // an idle endpoint doesn't grow its limit
+        for (int i = 0; i < 1000; i++) {
+            limit.onSample(fast, 1);
+        }
+        assertThat(limit.get()).isEqualTo(90);
+
+        for (int i = 0; i < 1000; i++) {
+            limit.onSample(fast, 90);
+        }
+        assertThat(limit.get()).isGreaterThan(90);
+    }
+}
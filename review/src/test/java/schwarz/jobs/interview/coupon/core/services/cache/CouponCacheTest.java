@@ -0,0 +1,119 @@
+package schwarz.jobs.interview.coupon.core.services.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+public class CouponCacheTest {
+
+    private final CouponCache couponCache = new CouponCache(new CouponCacheProperties());
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Coupon createCoupon(String code) {
+        return Coupon.builder()
+            .id(1L)
+            .code(code)
+            .discount(BigDecimal.TEN)
+            .build();
+    }
+
+    @Test
+    public void should_share_one_load_between_concurrent_misses() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<Optional<Coupon>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String code = i % 2 == 0 ? "promo" : " PROMO ";
+                results.add(executor.submit(() -> couponCache.get(code, key -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return Optional.of(createCoupon(key));
+                })));
+            }
+
+            // keep the first load in flight long enough for the others to join it
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<Optional<Coupon>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).map(Coupon::getCode).contains("promo");
+            }
+            assertThat(loads).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_remember_unknown_codes() {
+        assertThat(couponCache.get("guess", this::notFound)).isEmpty();
+        assertThat(couponCache.get("GUESS", this::notFound)).isEmpty();
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void should_forget_unknown_code_once_it_is_created() {
+        couponCache.get("new", this::notFound);
+
+        couponCache.put(createCoupon("new"));
+
+        assertThat(couponCache.get("new", this::notFound)).isPresent();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void should_not_hide_a_coupon_created_while_its_code_was_loaded() {
+        couponCache.get("late", key -> {
+            // created after the lookup found nothing, before the miss is remembered
+            couponCache.put(createCoupon(key));
+            return notFound(key);
+        });
+
+        assertThat(couponCache.get("late", this::notFound)).map(Coupon::getCode).contains("late");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void should_load_again_after_a_failed_load() {
+        assertThatThrownBy(() -> couponCache.get("flaky", key -> {
+            throw new QueryTimeoutException("timeout");
+        })).isInstanceOf(QueryTimeoutException.class);
+
+        assertThat(couponCache.get("flaky", key -> Optional.of(createCoupon(key)))).isPresent();
+    }
+
+    private Optional<Coupon> notFound(String code) {
+        loads.incrementAndGet();
+        return Optional.empty();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
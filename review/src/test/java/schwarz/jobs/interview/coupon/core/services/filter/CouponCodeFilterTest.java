@@ -0,0 +1,65 @@
+package schwarz.jobs.interview.coupon.core.services.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+public class CouponCodeFilterTest {
+
+    private static final int CODES = 100_000;
+
+    @Test
+    public void should_never_reject_added_codes() {
+        CouponCodeFilter filter = CouponCodeFilter.create(CODES, 0.01);
+
+        for (int i = 0; i < CODES; i++) {
+            filter.add("code-" + i);
+        }
+
+        for (int i = 0; i < CODES; i++) {
+            assertThat(filter.mightContain("code-" + i)).isTrue();
+        }
+        assertThat(filter.approximateSize()).isCloseTo(CODES, within(CODES / 50L));
+    }
+
+    @Test
+    public void should_keep_false_positives_near_the_targeted_rate() {
+        CouponCodeFilter filter = CouponCodeFilter.create(CODES, 0.01);
+        for (int i = 0; i < CODES; i++) {
+            filter.add("code-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < CODES; i++) {
+            if (filter.mightContain("guess-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // the bit count is rounded up to a power of two, so the rate is at most the targeted one
+        assertThat(falsePositives / (double) CODES).isLessThan(0.01);
+        assertThat(filter.expectedFalsePositiveRate()).isLessThan(0.01);
+    }
+
+    @Test
+    public void should_pass_every_code_until_a_filter_is_built() {
+        CouponCodeFilterStore store = new CouponCodeFilterStore();
+
+        assertThat(store.mightContain("anything")).isTrue();
+    }
+
+    @Test
+    public void should_keep_codes_added_while_rebuilding() {
+        CouponCodeFilterStore store = new CouponCodeFilterStore();
+        store.beginRebuild(CouponCodeFilter.create(1000, 0.01));
+        store.publishRebuild();
+
+        store.beginRebuild(CouponCodeFilter.create(1000, 0.01));
+        store.add(" Created-During-Rebuild ");
+        store.publishRebuild();
+
+        assertThat(store.mightContain("created-during-rebuild")).isTrue();
+        assertThat(store.mightContain("never-created")).isFalse();
+    }
+}
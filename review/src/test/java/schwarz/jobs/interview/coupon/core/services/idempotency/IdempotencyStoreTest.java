@@ -0,0 +1,72 @@
+package schwarz.jobs.interview.coupon.core.services.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import schwarz.jobs.interview.coupon.core.services.exception.IdempotencyKeyReuseException;
+
+public class IdempotencyStoreTest {
+
+    private final IdempotencyStore idempotencyStore = new IdempotencyStore(new IdempotencyProperties());
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private Mono<Integer> countedExecution() {
+        return Mono.fromCallable(executions::incrementAndGet);
+    }
+
+    @Test
+    public void should_replay_result_for_same_key() {
+        Integer first = idempotencyStore.execute("key", "request", this::countedExecution).block();
+        Integer retry = idempotencyStore.execute("key", "request", this::countedExecution).block();
+        Integer other = idempotencyStore.execute("other", "request", this::countedExecution).block();
+
+        assertThat(first).isEqualTo(1);
+        assertThat(retry).isEqualTo(1);
+        assertThat(other).isEqualTo(2);
+    }
+
+    @Test
+    public void should_share_execution_with_retries_in_flight() {
+        Sinks.One<String> pending = Sinks.one();
+        Mono<String> first = idempotencyStore.execute("key", "request", () -> {
+            executions.incrementAndGet();
+            return pending.asMono();
+        });
+        Mono<String> retry = idempotencyStore.execute("key", "request", () -> {
+            executions.incrementAndGet();
+            return Mono.just("second");
+        });
+
+        first.subscribe();
+        retry.subscribe();
+        pending.tryEmitValue("first");
+
+        assertThat(retry.block(Duration.ofSeconds(1))).isEqualTo("first");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    public void should_reject_key_reused_for_other_request() {
+        idempotencyStore.execute("key", "request", this::countedExecution).block();
+
+        assertThatThrownBy(() -> idempotencyStore.execute("key", "other request", this::countedExecution).block())
+            .isInstanceOf(IdempotencyKeyReuseException.class);
+    }
+
+    @Test
+    public void should_run_again_after_failure() {
+        assertThatThrownBy(() -> idempotencyStore.execute("key", "request",
+            () -> Mono.<Integer>error(new IllegalStateException("database down"))).block())
+            .isInstanceOf(IllegalStateException.class);
+
+        assertThat(idempotencyStore.execute("key", "request", this::countedExecution).block()).isEqualTo(1);
+    }
+}
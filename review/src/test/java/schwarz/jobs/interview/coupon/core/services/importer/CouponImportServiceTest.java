@@ -0,0 +1,154 @@
+package schwarz.jobs.interview.coupon.core.services.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import jakarta.validation.Validation;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+import schwarz.jobs.interview.coupon.core.services.filter.CouponCodeFilterStore;
+
+public class CouponImportServiceTest {
+
+    private final CouponRepository couponRepository = mock(CouponRepository.class);
+
+    private final CouponImportProperties properties = new CouponImportProperties();
+
+    private final CouponImportService couponImportService = new CouponImportService(
+        couponRepository,
+        CouponShards.single(),
+        new CouponCodeFilterStore(),
+        new TransactionTemplate(mock(PlatformTransactionManager.class)),
+        Validation.buildDefaultValidatorFactory().getValidator(),
+        properties,
+        new ObjectMapper().registerModule(new JavaTimeModule()));
+
+    private ImportReport importCoupons(ImportFormat format, String... lines) throws IOException {
+        String content = String.join("\n", lines);
+        return couponImportService.importCoupons(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), format);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Coupon> savedCoupons(int batches) {
+        ArgumentCaptor<List<Coupon>> captor = ArgumentCaptor.forClass(List.class);
+        verify(couponRepository, times(batches)).saveAll(captor.capture());
+        return captor.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    @Test
+    public void should_import_ndjson_in_batches() throws IOException {
+        properties.setBatchSize(2);
+
+        ImportReport report = importCoupons(ImportFormat.NDJSON,
+            "{\"code\":\" Summer1 \",\"discount\":10.00}",
+            "",
+            "{\"code\":\"summer2\",\"discount\":5.50,\"minBasketValue\":50,\"validUntil\":\"2030-01-01T00:00:00Z\"}",
+            "{\"code\":\"summer3\",\"discount\":1,\"maxRedemptions\":100}");
+
+        assertThat(report.getRowsRead()).isEqualTo(3);
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(report.getRejected()).isZero();
+        assertThat(savedCoupons(2)).extracting(Coupon::getCode).containsExactly("summer1", "summer2", "summer3");
+    }
+
+    @Test
+    public void should_import_csv_with_header() throws IOException {
+        ImportReport report = importCoupons(ImportFormat.CSV,
+            "code,discount,minBasketValue,validFrom,comment",
+            "autumn1,10.00,,2024-09-01T00:00:00Z,first",
+            "\"autumn2\",2.5,20,,second");
+
+        assertThat(report.getImported()).isEqualTo(2);
+        List<Coupon> saved = savedCoupons(1);
+        assertThat(saved.get(0).getMinBasketValue()).isNull();
+        assertThat(saved.get(0).getValidFrom()).isNotNull();
+        assertThat(saved.get(1).getCode()).isEqualTo("autumn2");
+        assertThat(saved.get(1).getMinBasketValue()).isEqualByComparingTo(BigDecimal.valueOf(20));
+    }
+
+    @Test
+    public void should_read_quoted_csv_header_with_byte_order_mark() throws IOException {
+        ImportReport report = importCoupons(ImportFormat.CSV,
+            "\uFEFF\"code\", \"discount\"",
+            "winter1,5");
+
+        assertThat(report.getImported()).isEqualTo(1);
+        assertThat(savedCoupons(1).get(0).getCode()).isEqualTo("winter1");
+    }
+
+    @Test
+    public void should_report_invalid_and_malformed_rows() throws IOException {
+        ImportReport report = importCoupons(ImportFormat.NDJSON,
+            "{\"code\":\"valid\",\"discount\":10}",
+            "{\"code\":\"negative\",\"discount\":-1}",
+            "{\"code\":",
+            "{\"discount\":10}");
+
+        assertThat(report.getImported()).isEqualTo(1);
+        assertThat(report.getRejected()).isEqualTo(3);
+        assertThat(report.getErrors()).extracting(ImportRowError::getLine).containsExactly(2L, 3L, 4L);
+        assertThat(report.getErrors().get(0).getMessage()).startsWith("discount");
+        assertThat(report.getErrors().get(1).getMessage()).startsWith("Malformed row");
+        assertThat(report.getErrors().get(2).getMessage()).startsWith("code");
+    }
+
+    @Test
+    public void should_cap_reported_errors() throws IOException {
+        properties.setMaxReportedErrors(1);
+
+        ImportReport report = importCoupons(ImportFormat.NDJSON, "{}", "{}", "{}");
+
+        assertThat(report.getRejected()).isEqualTo(3);
+        assertThat(report.getErrors()).hasSize(1);
+        assertThat(report.isErrorsTruncated()).isTrue();
+    }
+
+    @Test
+    public void should_isolate_duplicate_codes_of_a_failed_batch() throws IOException {
+        when(couponRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(couponRepository.save(argThat(coupon -> coupon.getCode().equals("taken"))))
+            .thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        ImportReport report = importCoupons(ImportFormat.NDJSON,
+            "{\"code\":\"fresh\",\"discount\":10}",
+            "{\"code\":\"taken\",\"discount\":10}");
+
+        assertThat(report.getImported()).isEqualTo(1);
+        assertThat(report.getErrors()).singleElement()
+            .satisfies(error -> {
+                assertThat(error.getLine()).isEqualTo(2);
+                assertThat(error.getCode()).isEqualTo("taken");
+            });
+        verify(couponRepository, times(2)).save(any(Coupon.class));
+    }
+
+    @Test
+    public void should_require_csv_header() {
+        assertThatThrownBy(() -> importCoupons(ImportFormat.CSV, ""))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
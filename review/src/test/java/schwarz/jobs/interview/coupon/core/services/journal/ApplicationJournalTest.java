@@ -0,0 +1,153 @@
+package schwarz.jobs.interview.coupon.core.services.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import schwarz.jobs.interview.coupon.core.services.model.ApplicationStatus;
+import schwarz.jobs.interview.coupon.core.services.model.Basket;
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+
+public class ApplicationJournalTest {
+
+    private final Instant now = Instant.parse("2024-06-01T12:00:00Z");
+
+    @TempDir
+    private Path directory;
+
+    private ApplicationJournal openJournal(long segmentRecords) {
+        JournalProperties properties = new JournalProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSize(DataSize.ofBytes(segmentRecords * JournalSegment.RECORD_SIZE));
+        properties.setFlushInterval(Duration.ofMillis(10));
+        return new ApplicationJournal(properties, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private Basket appliedBasket(long value) {
+        Basket basket = Basket.builder().value(BigDecimal.valueOf(value)).build();
+        basket.applyDiscount(BigDecimal.TEN);
+        return basket;
+    }
+
+    private List<JournalRecord> replay(ApplicationJournal journal, long fromSequence) {
+        List<JournalRecord> records = new ArrayList<>();
+        journal.replay(fromSequence, records::add);
+        return records;
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void should_replay_recorded_applications_in_order() throws Exception {
+        ApplicationJournal journal = openJournal(1000);
+
+        journal.record("1111", appliedBasket(100), ApplicationStatus.APPLIED);
+        Basket rejected = Basket.builder().value(BigDecimal.valueOf(20)).build();
+        rejected.reject(RejectionReason.BELOW_MIN_BASKET_VALUE);
+        journal.record("2222", rejected, ApplicationStatus.NOT_APPLIED);
+        journal.close();
+
+        List<JournalRecord> records = replay(journal, 0);
+
+        assertThat(records).hasSize(2);
+        assertThat(records.get(0)).satisfies(record -> {
+            assertThat(record.getSequence()).isEqualTo(1);
+            assertThat(record.getTimestamp()).isEqualTo(now);
+            assertThat(record.getCode()).isEqualTo("1111");
+            assertThat(record.getBasketValue()).isEqualByComparingTo("100");
+            assertThat(record.getDiscount()).isEqualByComparingTo("10");
+            assertThat(record.getStatus()).isEqualTo(ApplicationStatus.APPLIED);
+            assertThat(record.getRejectionReason()).isNull();
+        });
+        assertThat(records.get(1)).satisfies(record -> {
+            assertThat(record.getSequence()).isEqualTo(2);
+            assertThat(record.getStatus()).isEqualTo(ApplicationStatus.NOT_APPLIED);
+            assertThat(record.getRejectionReason()).isEqualTo(RejectionReason.BELOW_MIN_BASKET_VALUE);
+        });
+    }
+
+    @Test
+    public void should_roll_segments_and_replay_across_them() throws Exception {
+        ApplicationJournal journal = openJournal(4);
+
+        for (int i = 0; i < 10; i++) {
+            journal.record("code" + i, appliedBasket(100), ApplicationStatus.APPLIED);
+        }
+        journal.close();
+
+        assertThat(segmentFiles()).hasSize(3);
+        assertThat(replay(journal, 0)).extracting(JournalRecord::getSequence)
+            .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(replay(journal, 6)).extracting(JournalRecord::getCode)
+            .containsExactly("code5", "code6", "code7", "code8", "code9");
+    }
+
+    @Test
+    public void should_continue_after_last_complete_record_on_recovery() throws Exception {
+        ApplicationJournal journal = openJournal(100);
+        for (int i = 0; i < 3; i++) {
+            journal.record("code" + i, appliedBasket(100), ApplicationStatus.APPLIED);
+        }
+        journal.close();
+
+        // a write torn by a crash, the third record is corrupt
+        try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 42 }), 2L * JournalSegment.RECORD_SIZE + 50);
+        }
+
+        ApplicationJournal recovered = openJournal(100);
+        recovered.record("next", appliedBasket(100), ApplicationStatus.APPLIED);
+        recovered.close();
+
+        assertThat(replay(recovered, 0)).extracting(JournalRecord::getSequence, JournalRecord::getCode)
+            .containsExactly(
+                tuple(1L, "code0"),
+                tuple(2L, "code1"),
+                tuple(3L, "next"));
+    }
+
+    @Test
+    public void should_truncate_long_codes() throws Exception {
+        ApplicationJournal journal = openJournal(10);
+
+        journal.record("x".repeat(200), appliedBasket(100), ApplicationStatus.APPLIED);
+        journal.close();
+
+        assertThat(replay(journal, 0)).singleElement().satisfies(record -> {
+            assertThat(record.getCode()).hasSize(JournalSegment.CODE_BYTES);
+            assertThat(record.isCodeTruncated()).isTrue();
+        });
+    }
+
+    @Test
+    public void should_record_nothing_when_disabled() {
+        ApplicationJournal journal = ApplicationJournal.disabled();
+
+        journal.record("1111", appliedBasket(100), ApplicationStatus.APPLIED);
+
+        assertThat(journal.replay(0, record -> { })).isZero();
+    }
+}
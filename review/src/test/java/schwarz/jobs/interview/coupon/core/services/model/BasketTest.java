@@ -0,0 +1,31 @@
+package schwarz.jobs.interview.coupon.core.services.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import org.junit.jupiter.api.Test;
+
+public class BasketTest {
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    public void should_accept_the_largest_basket_value() {
+        Basket basket = Basket.builder().value(new BigDecimal(Basket.MAX_VALUE)).build();
+
+        assertThat(validator.validate(basket)).isEmpty();
+    }
+
+    @Test
+    public void should_reject_basket_values_that_overflow_minor_units() {
+        Basket basket = Basket.builder().value(new BigDecimal("1E+30")).build();
+
+        assertThat(validator.validate(basket))
+            .extracting(violation -> violation.getPropertyPath().toString())
+            .containsExactly("value");
+    }
+}
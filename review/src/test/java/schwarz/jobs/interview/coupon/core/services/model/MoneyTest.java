@@ -0,0 +1,53 @@
+package schwarz.jobs.interview.coupon.core.services.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+public class MoneyTest {
+
+    @Test
+    public void should_convert_losslessly_to_and_from_big_decimal() {
+        BigDecimal amount = new BigDecimal("12345678.90");
+
+        Money money = Money.of(amount);
+
+        assertThat(money.getMinorUnits()).isEqualTo(1234567890L);
+        assertThat(money.toBigDecimal()).isEqualTo(amount);
+        assertThat(Money.of(new BigDecimal("10")).toBigDecimal()).isEqualTo(new BigDecimal("10.00"));
+    }
+
+    @Test
+    public void should_reject_amounts_with_more_decimal_places() {
+        assertThatThrownBy(() -> Money.of(new BigDecimal("0.001")))
+            .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    public void should_floor_basket_values_without_changing_comparisons() {
+        long minBasketValue = Money.toMinorUnits(new BigDecimal("50.00"));
+
+        assertThat(Money.toMinorUnitsFloor(new BigDecimal("49.999"))).isLessThan(minBasketValue);
+        assertThat(Money.toMinorUnitsFloor(new BigDecimal("50.001"))).isEqualTo(minBasketValue);
+        assertThat(Money.toMinorUnitsFloor(new BigDecimal("-0.001"))).isEqualTo(-1);
+        assertThat(Money.toMinorUnitsFloor(BigDecimal.valueOf(100))).isEqualTo(10000);
+    }
+
+    @Test
+    public void should_convert_the_largest_basket_value() {
+        assertThat(Money.toMinorUnitsFloor(new BigDecimal(Basket.MAX_VALUE))).isEqualTo(999999999999999999L);
+        assertThat(Money.toMinorUnitsFloor(new BigDecimal(Basket.MAX_VALUE + "9"))).isEqualTo(999999999999999999L);
+    }
+
+    @Test
+    public void should_add_and_compare() {
+        Money sum = Money.of(new BigDecimal("0.10")).plus(Money.of(new BigDecimal("0.20")));
+
+        assertThat(sum).isEqualTo(Money.of(new BigDecimal("0.30")));
+        assertThat(sum.minus(Money.of(new BigDecimal("0.30")))).isSameAs(Money.ZERO);
+        assertThat(sum.compareTo(Money.ZERO)).isPositive();
+    }
+}
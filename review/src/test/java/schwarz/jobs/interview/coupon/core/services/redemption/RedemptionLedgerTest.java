@@ -0,0 +1,142 @@
+package schwarz.jobs.interview.coupon.core.services.redemption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+
+public class RedemptionLedgerTest {
+
+    private final RedemptionLedger redemptionLedger = new RedemptionLedger();
+
+    private Coupon createCoupon(Long maxRedemptions, long redemptionCount) {
+        return Coupon.builder()
+            .id(1L)
+            .code("1111")
+            .discount(BigDecimal.TEN)
+            .maxRedemptions(maxRedemptions)
+            .redemptionCount(redemptionCount)
+            .build();
+    }
+
+    @Test
+    public void should_always_redeem_unlimited_coupons() {
+        Coupon coupon = createCoupon(null, 0);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(redemptionLedger.tryRedeem(coupon)).isTrue();
+        }
+        assertThat(redemptionLedger.drainPending()).isEmpty();
+    }
+
+    @Test
+    public void should_respect_redemptions_already_persisted() {
+        Coupon coupon = createCoupon(5L, 3);
+
+        assertThat(redemptionLedger.tryRedeem(coupon)).isTrue();
+        assertThat(redemptionLedger.tryRedeem(coupon)).isTrue();
+        assertThat(redemptionLedger.tryRedeem(coupon)).isFalse();
+    }
+
+    @Test
+    public void should_never_over_redeem_under_contention() throws Exception {
+        Coupon coupon = createCoupon(1000L, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int thread = 0; thread < 16; thread++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int redeemed = 0;
+                    for (int i = 0; i < 200; i++) {
+                        if (redemptionLedger.tryRedeem(coupon)) {
+                            redeemed++;
+                        }
+                    }
+                    return redeemed;
+                }));
+            }
+            start.countDown();
+
+            int redeemed = 0;
+            for (Future<Integer> result : results) {
+                redeemed += result.get();
+            }
+
+            assertThat(redeemed).isEqualTo(1000);
+            assertThat(redemptionLedger.drainPending()).containsEntry(1L, 1000L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_drain_only_redemptions_since_last_drain() {
+        Coupon coupon = createCoupon(10L, 0);
+
+        redemptionLedger.tryRedeem(coupon);
+        redemptionLedger.tryRedeem(coupon);
+        assertThat(redemptionLedger.drainPending()).containsEntry(1L, 2L);
+
+        redemptionLedger.tryRedeem(coupon);
+        redemptionLedger.release(coupon);
+        redemptionLedger.release(coupon);
+        assertThat(redemptionLedger.drainPending()).containsEntry(1L, -1L);
+        assertThat(redemptionLedger.drainPending()).isEmpty();
+    }
+
+    @Test
+    public void should_rebuild_the_budget_when_the_usage_limit_changes() {
+        Instant created = Instant.parse("2024-01-01T00:00:00Z");
+        Coupon original = createCoupon(2L, 0);
+        original.setUpdatedAt(created);
+        Coupon raised = createCoupon(5L, 0);
+        raised.setUpdatedAt(created.plusSeconds(60));
+
+        assertThat(redemptionLedger.tryRedeem(original)).isTrue();
+        assertThat(redemptionLedger.tryRedeem(original)).isTrue();
+        assertThat(redemptionLedger.tryRedeem(original)).isFalse();
+
+        // the two redemptions are not flushed yet, so only three of the raised limit are left
+        for (int i = 0; i < 3; i++) {
+            assertThat(redemptionLedger.tryRedeem(raised)).isTrue();
+        }
+        assertThat(redemptionLedger.tryRedeem(raised)).isFalse();
+        // a stale copy of the coupon doesn't bring the old budget back
+        assertThat(redemptionLedger.tryRedeem(original)).isFalse();
+        assertThat(redemptionLedger.drainPending()).containsEntry(1L, 5L);
+    }
+
+    @Test
+    public void should_not_count_a_flush_twice_when_it_lands_between_reload_and_rebuild() {
+        Instant created = Instant.parse("2024-01-01T00:00:00Z");
+        Coupon original = createCoupon(2L, 0);
+        original.setUpdatedAt(created);
+
+        assertThat(redemptionLedger.tryRedeem(original)).isTrue();
+        assertThat(redemptionLedger.tryRedeem(original)).isTrue();
+
+        // reloaded with the raised limit before the flush, so its count doesn't include the two redemptions yet
+        Coupon raised = createCoupon(5L, 0);
+        raised.setUpdatedAt(created.plusSeconds(60));
+        assertThat(redemptionLedger.drainPending()).containsEntry(1L, 2L);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(redemptionLedger.tryRedeem(raised)).isTrue();
+        }
+        assertThat(redemptionLedger.tryRedeem(raised)).isFalse();
+        assertThat(redemptionLedger.drainPending()).containsEntry(1L, 3L);
+    }
+}
@@ -0,0 +1,124 @@
+package schwarz.jobs.interview.coupon.core.services.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import schwarz.jobs.interview.coupon.core.domain.CouponView;
+import schwarz.jobs.interview.coupon.core.repository.CouponExportRepository;
+
+public class CouponSnapshotRefresherTest {
+
+    private final Instant now = Instant.parse("2024-06-01T12:00:00Z");
+
+    private final Clock clock = mock(Clock.class);
+
+    private final CouponExportRepository couponExportRepository = mock(CouponExportRepository.class);
+
+    private final CouponSnapshotStore couponSnapshotStore = new CouponSnapshotStore(clock);
+
+    private final CouponSnapshotRefresher couponSnapshotRefresher =
+        new CouponSnapshotRefresher(couponSnapshotStore, couponExportRepository, clock);
+
+    private CouponView view(long id, String code, long discount, Instant updatedAt) {
+        return CouponView.builder()
+            .id(id)
+            .code(code)
+            .discount(BigDecimal.valueOf(discount))
+            .stackable(true)
+            .updatedAt(updatedAt)
+            .build();
+    }
+
+    @Test
+    public void should_serve_full_catalogue_after_first_refresh() {
+        when(clock.instant()).thenReturn(now);
+        when(couponExportRepository.streamAll()).thenReturn(IntStream.range(0, 1000)
+            .mapToObj(i -> view(i, "code" + i, 1 + i % 50, now.minusSeconds(60))));
+
+        couponSnapshotRefresher.refresh();
+
+        CouponSnapshot snapshot = couponSnapshotStore.current();
+        assertThat(snapshot.getVersion()).isEqualTo(1);
+        assertThat(snapshot.size()).isEqualTo(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(couponSnapshotStore.get("CODE" + i).getId()).isEqualTo(i);
+        }
+        assertThat(couponSnapshotStore.get("unknown")).isNull();
+    }
+
+    @Test
+    public void should_merge_changes_and_drop_expired_coupons() {
+        when(clock.instant()).thenReturn(now);
+        when(couponExportRepository.streamAll()).thenReturn(Stream.of(
+            view(1, "kept", 5, now.minusSeconds(60)),
+            view(2, "changed", 5, now.minusSeconds(60)),
+            view(3, "expiring", 5, now.minusSeconds(60))));
+        couponSnapshotRefresher.refresh();
+
+        CouponView expired = CouponView.builder()
+            .id(3L)
+            .code("expiring")
+            .discount(BigDecimal.valueOf(5))
+            .validUntil(now.plusSeconds(6))
+            .updatedAt(now.plusSeconds(5))
+            .build();
+        when(clock.instant()).thenReturn(now.plusSeconds(10));
+        when(couponExportRepository.streamChangedSince(any())).thenReturn(Stream.of(
+            view(1, "kept", 5, now.minusSeconds(60)),
+            view(2, "changed", 20, now.plusSeconds(5)),
+            view(4, "created", 7, now.plusSeconds(5)),
+            expired));
+        couponSnapshotRefresher.refresh();
+
+        CouponSnapshot snapshot = couponSnapshotStore.current();
+        assertThat(snapshot.getVersion()).isEqualTo(2);
+        assertThat(snapshot.get("kept")).isNotNull();
+        assertThat(snapshot.get("changed").getDiscount()).isEqualTo(BigDecimal.valueOf(20));
+        assertThat(snapshot.get("created")).isNotNull();
+        assertThat(snapshot.get("expiring")).isNull();
+        assertThat(snapshot.getHighWaterMark()).isEqualTo(now.plusSeconds(5));
+    }
+
+    @Test
+    public void should_keep_version_but_report_freshness_without_changes() {
+        when(clock.instant()).thenReturn(now);
+        when(couponExportRepository.streamAll()).thenReturn(Stream.of(view(1, "kept", 5, now.minusSeconds(60))));
+        couponSnapshotRefresher.refresh();
+
+        when(clock.instant()).thenReturn(now.plusSeconds(30));
+        when(couponExportRepository.streamChangedSince(any())).thenReturn(Stream.of(view(1, "kept", 5, now.minusSeconds(60))));
+        couponSnapshotRefresher.refresh();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        couponSnapshotStore.bindTo(registry);
+        when(clock.instant()).thenReturn(now.plusSeconds(40));
+
+        assertThat(couponSnapshotStore.current().getVersion()).isEqualTo(1);
+        assertThat(registry.get("coupon.snapshot.age").gauge().value()).isEqualTo(10.0);
+        assertThat(registry.get("coupon.snapshot.version").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void should_keep_serving_previous_snapshot_when_refresh_fails() {
+        when(clock.instant()).thenReturn(now);
+        when(couponExportRepository.streamAll()).thenReturn(Stream.of(view(1, "kept", 5, now)));
+        couponSnapshotRefresher.refresh();
+
+        when(couponExportRepository.streamChangedSince(any())).thenThrow(new IllegalStateException("database down"));
+        couponSnapshotRefresher.refresh();
+
+        assertThat(couponSnapshotStore.current().getVersion()).isEqualTo(1);
+        assertThat(couponSnapshotStore.get("kept")).isNotNull();
+    }
+}
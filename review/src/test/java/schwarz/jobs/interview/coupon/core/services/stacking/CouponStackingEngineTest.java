@@ -0,0 +1,117 @@
+package schwarz.jobs.interview.coupon.core.services.stacking;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.services.model.RejectionReason;
+import schwarz.jobs.interview.coupon.core.services.rules.CouponRuleEngine;
+
+public class CouponStackingEngineTest {
+
+    private final Instant now = Instant.parse("2024-06-01T12:00:00Z");
+
+    private final CouponStackingEngine couponStackingEngine =
+        new CouponStackingEngine(new CouponRuleEngine(Clock.fixed(now, ZoneOffset.UTC)));
+
+    private Coupon.CouponBuilder coupon(String code, long discount, long minBasketValue) {
+        return Coupon.builder()
+            .code(code)
+            .discount(BigDecimal.valueOf(discount))
+            .minBasketValue(BigDecimal.valueOf(minBasketValue));
+    }
+
+    private List<String> codes(List<Coupon> coupons) {
+        return coupons.stream().map(Coupon::getCode).toList();
+    }
+
+    @Test
+    public void should_check_minimum_against_remaining_basket_value() {
+        List<Coupon> coupons = List.of(
+            coupon("a", 40, 0).build(),
+            coupon("b", 20, 90).build(),
+            coupon("c", 50, 85).build());
+
+        StackingSelection selection = couponStackingEngine.select(coupons, 100_00);
+
+        // b leaves only 80 for c, so taking b costs the larger discount of c
+        assertThat(codes(selection.getApplied())).containsExactly("c", "a");
+        assertThat(selection.getDiscount()).isEqualTo(90_00);
+        assertThat(selection.getRejected()).containsEntry("b", RejectionReason.NOT_COMBINABLE);
+    }
+
+    @Test
+    public void should_apply_at_most_one_coupon_per_group() {
+        List<Coupon> coupons = List.of(
+            coupon("summer10", 10, 0).stackingGroup("summer").build(),
+            coupon("summer15", 15, 0).stackingGroup("summer").build(),
+            coupon("extra5", 5, 0).build());
+
+        StackingSelection selection = couponStackingEngine.select(coupons, 100_00);
+
+        assertThat(codes(selection.getApplied())).containsExactlyInAnyOrder("summer15", "extra5");
+        assertThat(selection.getDiscount()).isEqualTo(20_00);
+    }
+
+    @Test
+    public void should_prefer_non_stackable_coupon_on_ties() {
+        List<Coupon> coupons = List.of(
+            coupon("solo", 40, 0).stackable(false).build(),
+            coupon("first", 20, 0).build(),
+            coupon("second", 20, 0).build());
+
+        StackingSelection selection = couponStackingEngine.select(coupons, 100_00);
+
+        assertThat(codes(selection.getApplied())).containsExactly("solo");
+        assertThat(selection.getRejected()).containsOnlyKeys("first", "second");
+    }
+
+    @Test
+    public void should_not_waste_coupons_beyond_basket_value() {
+        List<Coupon> coupons = List.of(
+            coupon("ten", 10, 0).build(),
+            coupon("twenty", 20, 0).build(),
+            coupon("thirty", 30, 0).build());
+
+        StackingSelection selection = couponStackingEngine.select(coupons, 30_00);
+
+        assertThat(codes(selection.getApplied())).containsExactly("thirty");
+        assertThat(selection.getDiscount()).isEqualTo(30_00);
+    }
+
+    @Test
+    public void should_report_ineligible_coupons() {
+        List<Coupon> coupons = List.of(
+            coupon("expired", 10, 0).validUntil(now.minusSeconds(1)).build(),
+            coupon("expensive", 10, 500).build());
+
+        StackingSelection selection = couponStackingEngine.select(coupons, 100_00);
+
+        assertThat(selection.getApplied()).isEmpty();
+        assertThat(selection.getRejected())
+            .containsEntry("expired", RejectionReason.EXPIRED)
+            .containsEntry("expensive", RejectionReason.BELOW_MIN_BASKET_VALUE);
+    }
+
+    @Test
+    public void should_find_optimum_of_maximum_number_of_coupons() {
+        List<Coupon> coupons = new ArrayList<>();
+        for (int i = 0; i < CouponStackingEngine.MAX_COUPONS; i++) {
+            coupons.add(coupon("c" + i, 5 + i % 7, 10 * i).stackingGroup("g" + i % 4).build());
+        }
+
+        StackingSelection selection = couponStackingEngine.select(coupons, 150_00);
+
+        // one coupon per group, the high minimums only fit while little has been discounted yet
+        assertThat(codes(selection.getApplied())).containsExactly("c13", "c12", "c11", "c6");
+        assertThat(selection.getDiscount()).isEqualTo(41_00);
+    }
+}
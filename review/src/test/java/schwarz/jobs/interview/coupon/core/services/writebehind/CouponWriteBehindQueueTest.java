@@ -0,0 +1,144 @@
+package schwarz.jobs.interview.coupon.core.services.writebehind;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import schwarz.jobs.interview.coupon.core.domain.Coupon;
+import schwarz.jobs.interview.coupon.core.repository.CouponRepository;
+import schwarz.jobs.interview.coupon.core.repository.sharding.CouponShards;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCache;
+import schwarz.jobs.interview.coupon.core.services.cache.CouponCacheProperties;
+import schwarz.jobs.interview.coupon.core.services.exception.WriteBehindQueueFullException;
+import schwarz.jobs.interview.coupon.core.services.filter.CouponCodeFilterStore;
+
+public class CouponWriteBehindQueueTest {
+
+    private final CouponRepository couponRepository = mock(CouponRepository.class);
+
+    private final CouponCache couponCache = new CouponCache(new CouponCacheProperties());
+
+    private CouponWriteBehindQueue writeBehindQueue;
+
+    private CouponWriteBehindQueue createQueue(Duration maxLatency) {
+        WriteBehindProperties properties = new WriteBehindProperties();
+        properties.setMaxLatency(maxLatency);
+        writeBehindQueue = new CouponWriteBehindQueue(couponRepository, CouponShards.single(), couponCache, new CouponCodeFilterStore(),
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), properties);
+        return writeBehindQueue;
+    }
+
+    private Coupon createCoupon(String code) {
+        return Coupon.builder()
+            .code(code)
+            .discount(BigDecimal.TEN)
+            .build();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        writeBehindQueue.shutdown();
+    }
+
+    @Test
+    public void should_commit_concurrent_creates_as_one_group() throws Exception {
+        createQueue(Duration.ofMillis(200));
+
+        CompletableFuture<Coupon> first = writeBehindQueue.submit(createCoupon("first"));
+        CompletableFuture<Coupon> second = writeBehindQueue.submit(createCoupon("second"));
+
+        // visible before the commit
+        assertThat(couponCache.getIfPresent("FIRST")).isPresent();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getCode()).isEqualTo("first");
+        assertThat(second.get(5, TimeUnit.SECONDS).getCode()).isEqualTo("second");
+        verify(couponRepository).saveAll(argThat(coupons -> ((List<Coupon>) coupons).size() == 2));
+    }
+
+    @Test
+    public void should_reject_codes_that_are_already_cached() {
+        createQueue(Duration.ofMillis(5));
+
+        writeBehindQueue.submit(createCoupon("taken"));
+
+        assertThatThrownBy(() -> writeBehindQueue.submit(createCoupon("Taken")))
+            .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    public void should_reject_persisted_codes_that_are_not_cached() {
+        Coupon persisted = createCoupon("persisted");
+        when(couponRepository.findByCode("persisted")).thenReturn(Optional.of(persisted));
+        createQueue(Duration.ofMillis(5));
+
+        assertThatThrownBy(() -> writeBehindQueue.submit(createCoupon("persisted")))
+            .isInstanceOf(DuplicateKeyException.class);
+        assertThat(couponCache.getIfPresent("persisted")).contains(persisted);
+    }
+
+    @Test
+    public void should_fail_only_the_conflicting_create_of_a_group() throws Exception {
+        when(couponRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(couponRepository.save(any())).thenAnswer(invocation -> {
+            Coupon coupon = invocation.getArgument(0);
+            if (coupon.getCode().equals("conflict")) {
+                throw new DataIntegrityViolationException("duplicate");
+            }
+            return coupon;
+        });
+        createQueue(Duration.ofMillis(200));
+
+        CompletableFuture<Coupon> valid = writeBehindQueue.submit(createCoupon("valid"));
+        CompletableFuture<Coupon> conflict = writeBehindQueue.submit(createCoupon("conflict"));
+
+        assertThat(valid.get(5, TimeUnit.SECONDS).getCode()).isEqualTo("valid");
+        assertThatThrownBy(() -> conflict.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(DataIntegrityViolationException.class);
+        assertThat(couponCache.getIfPresent("conflict")).isEmpty();
+        assertThat(couponCache.getIfPresent("valid")).isPresent();
+    }
+
+    @Test
+    public void should_cache_the_coupon_again_once_it_is_committed() throws Exception {
+        createQueue(Duration.ofMillis(200));
+
+        CompletableFuture<Coupon> created = writeBehindQueue.submit(createCoupon("evicted"));
+        // evicted before the commit and looked up in the database, where it isn't yet
+        couponCache.invalidate("evicted");
+        assertThat(couponCache.get("evicted", code -> Optional.empty())).isEmpty();
+
+        created.get(5, TimeUnit.SECONDS);
+        assertThat(couponCache.get("evicted", code -> Optional.empty())).isPresent();
+    }
+
+    @Test
+    public void should_reject_creates_once_shut_down() throws Exception {
+        createQueue(Duration.ofMillis(5));
+        writeBehindQueue.shutdown();
+
+        assertThatThrownBy(() -> writeBehindQueue.submit(createCoupon("late")))
+            .isInstanceOf(WriteBehindQueueFullException.class);
+        assertThat(couponCache.getIfPresent("late")).isEmpty();
+    }
+}